@@ -0,0 +1,277 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Benchmarks for board generation, revealing and rendering, parameterized by board size and mine density.
+ * Every benchmark runs a few warmup iterations, then reports the mean and standard deviation of the time per operation
+ * over the measured iterations, so runs can be compared before shipping a change.
+ * <p>
+ * Usage: {@code bench/run.sh [name filter] [sizes] [densities]}, for example {@code bench/run.sh cave 64,1024 0.1}, or
+ * {@code mvn -Pbench verify -Dbench.args="cave 64,1024 0.1"}.
+ */
+public class BoardBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+    private static final int[] DEFAULT_SIZES = { 16, 64, 256, 1024 };
+    private static final double[] DEFAULT_DENSITIES = { 0.10, 0.15, 0.20 };
+    private static final int MAX_PAINT_SIZE = 256; // painting bigger boards takes seconds per frame
+
+    // results are folded into here so the JIT cannot drop the benchmarked work
+    private static volatile long sink;
+
+    /**
+     * One benchmark. {@link #setup} runs once per size and density, {@link #prepare} before every operation,
+     * and only {@link #run} is timed.
+     */
+    private static abstract class Bench {
+        final String name;
+        int size, bombs;
+        long seed = 1;
+
+        Bench(String name) {
+            this.name = name;
+        }
+
+        void setup() {
+        }
+
+        void prepare() {
+        }
+
+        abstract long run();
+
+        boolean supports(int size) {
+            return true;
+        }
+
+        // a fresh board that has had its first click at the center
+        BoardManager clickedBoard() {
+            BoardManager boardManager = new BoardManager(size, size, bombs, 0, 0, seed++);
+            boardManager.clickedYet = true;
+            boardManager.createBoard(size / 2, size / 2);
+            return boardManager;
+        }
+    }
+
+    private static ArrayList<Bench> benchmarks() {
+        ArrayList<Bench> list = new ArrayList<>();
+
+        list.add(new Bench("createBoard") {
+            BoardManager boardManager;
+
+            void prepare() {
+                boardManager = new BoardManager(size, size, bombs, 0, 0, seed++);
+            }
+
+            long run() {
+                boardManager.createBoard(size / 2, size / 2);
+                return boardManager.bombsPlaced;
+            }
+        });
+
+        list.add(new Bench("createHints") {
+            BoardManager boardManager;
+
+            void setup() {
+                boardManager = clickedBoard();
+            }
+
+            long run() {
+                boardManager.createHints(BoardManager.BOARD_BOMB);
+                return boardManager.board.getHint(0);
+            }
+        });
+
+        list.add(new Bench("BitBoard.buildHints") {
+            BoardManager boardManager;
+
+            void setup() {
+                boardManager = clickedBoard();
+            }
+
+            long run() {
+                BitBoard.buildHints(boardManager.board, BoardManager.BOARD_BOMB);
+                return boardManager.board.getHint(0);
+            }
+        });
+
+        list.add(new Bench("DFS.cave") {
+            BoardManager boardManager;
+
+            void setup() {
+                boardManager = clickedBoard();
+            }
+
+            long run() {
+                return DFS.cave(boardManager.board, size / 2, size / 2, 0).size();
+            }
+        });
+
+        list.add(new Bench("BitBoard.Cave") {
+            BitBoard.Cave cave;
+            long tiles;
+
+            void setup() {
+                cave = new BitBoard.Cave(BitBoard.caveTiles(clickedBoard().board));
+            }
+
+            long run() {
+                tiles = 0;
+                cave.fill(size / 2, size / 2);
+                cave.forEach(index -> tiles++);
+                return tiles;
+            }
+        });
+
+        list.add(new Bench("stepOnTile") {
+            BoardManager boardManager;
+
+            void prepare() {
+                boardManager = clickedBoard();
+            }
+
+            long run() {
+                return boardManager.stepOnTile(size / 2, size / 2) + boardManager.discoveredCount;
+            }
+        });
+
+        list.add(new Bench("CaveReveal") {
+            BoardManager boardManager;
+
+            void prepare() {
+                boardManager = clickedBoard();
+            }
+
+            long run() {
+                return CaveReveal.reveal(boardManager.board, size / 2, size / 2).length;
+            }
+        });
+
+        list.add(new Bench("paintComponent") {
+            Game game;
+            BufferedImage image;
+            Graphics2D g2;
+
+            boolean supports(int size) {
+                return size <= MAX_PAINT_SIZE;
+            }
+
+            void setup() {
+                // one game for every trial, since each one starts threads that would share the CPU with later trials
+                if (game == null) {
+                    game = new Game();
+                    game.setSize(Game.PREF_W, Game.PREF_H);
+                }
+                BoardManager boardManager = clickedBoard();
+                boardManager.stepOnTile(size / 2, size / 2);
+                game.setBoard(boardManager);
+                image = new BufferedImage(Game.PREF_W, Game.PREF_H, BufferedImage.TYPE_INT_ARGB);
+                g2 = image.createGraphics();
+            }
+
+            long run() {
+                game.paintComponent(g2);
+                return image.getRGB(Game.PREF_W / 2, Game.PREF_H / 2);
+            }
+        });
+
+        return list;
+    }
+
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+        String filter = args.length > 0 ? args[0] : "";
+        int[] sizes = args.length > 1 ? parseInts(args[1]) : DEFAULT_SIZES;
+        double[] densities = args.length > 2 ? parseDoubles(args[2]) : DEFAULT_DENSITIES;
+
+        System.out.printf("%-20s %6s %8s %16s %14s %8s%n", "Benchmark", "size", "density", "mean (us/op)", "stddev", "ops");
+        for (Bench bench : benchmarks()) {
+            if (!bench.name.contains(filter))
+                continue;
+            for (int size : sizes) {
+                if (!bench.supports(size))
+                    continue;
+                for (double density : densities) {
+                    bench.size = size;
+                    bench.bombs = Math.min((int) (size * size * density), size * size - 9);
+
+                    // swing painting has to happen on the event thread
+                    double[] result = new double[3];
+                    if (bench.name.equals("paintComponent")) {
+                        SwingUtilities.invokeAndWait(() -> trial(bench, result));
+                    } else {
+                        trial(bench, result);
+                    }
+
+                    System.out.printf(Locale.ROOT, "%-20s %6d %8.2f %16.3f %14.3f %8d%n",
+                            bench.name, size, density, result[0] / 1000, result[1] / 1000, (long) result[2]);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    // run the warmup and measured iterations, and put the mean, stddev (in ns/op) and op count into result
+    private static void trial(Bench bench, double[] result) {
+        bench.setup();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(bench, new long[1]);
+        }
+
+        double[] perOp = new double[MEASURE_ITERATIONS];
+        long totalOps = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long[] ops = new long[1];
+            perOp[i] = iteration(bench, ops) / (double) ops[0];
+            totalOps += ops[0];
+        }
+
+        double mean = 0;
+        for (double t : perOp)
+            mean += t / perOp.length;
+        double variance = 0;
+        for (double t : perOp)
+            variance += (t - mean) * (t - mean) / perOp.length;
+
+        result[0] = mean;
+        result[1] = Math.sqrt(variance);
+        result[2] = totalOps;
+    }
+
+    // run operations for about ITERATION_NANOS, and return how long the timed parts took
+    private static long iteration(Bench bench, long[] ops) {
+        long timed = 0;
+        long end = System.nanoTime() + ITERATION_NANOS;
+        do {
+            bench.prepare();
+            long start = System.nanoTime();
+            sink += bench.run();
+            timed += System.nanoTime() - start;
+            ops[0]++;
+        } while (System.nanoTime() < end);
+        return timed;
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            values[i] = Integer.parseInt(parts[i].trim());
+        return values;
+    }
+
+    private static double[] parseDoubles(String list) {
+        String[] parts = list.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            values[i] = Double.parseDouble(parts[i].trim());
+        return values;
+    }
+}
@@ -0,0 +1,5 @@
+#!/bin/sh
+# compile the game and the benchmarks, then run them headless. arguments are passed on to BoardBenchmark
+cd "$(dirname "$0")/.."
+mkdir -p bench/classes
+javac -d bench/classes src/*.java bench/*.java && java -Djava.awt.headless=true -cp bench/classes:src BoardBenchmark "$@"
@@ -0,0 +1,391 @@
+import java.util.function.IntConsumer;
+
+/**
+ * One bit per tile of a board, for working on 64 tiles at a time with shifts and masks instead of one tile at a time.
+ * <p>
+ * Tiles are laid out by row like in {@link PackedBoard}, but every row starts on a new word: tile (x, y) is bit
+ * {@code y & 63} of word {@code x * rowWords + (y >>> 6)}. A shift never carries a tile into the next row, and the
+ * bits past the end of a row are always 0.
+ * <p>
+ * {@link #buildHints} counts the neighbors of 64 tiles at once with a bit-sliced adder, and {@link Cave} floods a cave
+ * a row at a time, filling each row out in a few shifts per word.
+ */
+public class BitBoard {
+
+    public final int w, h, rowWords;
+    private final long[] bits;
+
+    /**
+     * Create a board with no tiles set.
+     * @param w The number of rows.
+     * @param h The number of columns.
+     */
+    public BitBoard(int w, int h) {
+        this.w = w;
+        this.h = h;
+        this.rowWords = (h + 63) >>> 6;
+        this.bits = new long[w * rowWords];
+    }
+
+    /**
+     * @return A bitboard of the tiles of a board that hold {@code tile}.
+     */
+    public static BitBoard of(PackedBoard board, int tile) {
+        BitBoard result = new BitBoard(board.w, board.h);
+        int index = 0;
+        for (int x = 0; x < board.w; x++) {
+            for (int k = 0; k < result.rowWords; k++) {
+                // build each word in a register and store it once, without branching on the tiles
+                long word = 0;
+                int end = Math.min(64, board.h - (k << 6));
+                for (int j = 0; j < end; j++, index++)
+                    word |= (long) is(board.getTile(index), tile) << j;
+                result.bits[x * result.rowWords + k] = word;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return A bitboard of the tiles a cave can spread through, the ones with a hint of 0 that are not bombs.
+     */
+    public static BitBoard caveTiles(PackedBoard board) {
+        BitBoard result = new BitBoard(board.w, board.h);
+        int index = 0;
+        for (int x = 0; x < board.w; x++) {
+            for (int k = 0; k < result.rowWords; k++) {
+                long word = 0;
+                int end = Math.min(64, board.h - (k << 6));
+                for (int j = 0; j < end; j++, index++)
+                    word |= (long) (is(board.getHint(index), 0) & ~is(board.getTile(index), BoardManager.BOARD_BOMB))
+                            << j;
+                result.bits[x * result.rowWords + k] = word;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return A bitboard of the discovered tiles of a board.
+     */
+    public static BitBoard discovered(PackedBoard board) {
+        BitBoard result = new BitBoard(board.w, board.h);
+        int index = 0;
+        for (int x = 0; x < board.w; x++) {
+            for (int k = 0; k < result.rowWords; k++) {
+                long word = 0;
+                int end = Math.min(64, board.h - (k << 6));
+                for (int j = 0; j < end; j++, index++)
+                    word |= (long) (board.isDiscovered(index) ? 1 : 0) << j;
+                result.bits[x * result.rowWords + k] = word;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return A bitboard of the hidden tiles of a board that are not flagged, the ones a {@link Solver} works out.
+     */
+    public static BitBoard hidden(PackedBoard board) {
+        BitBoard result = new BitBoard(board.w, board.h);
+        int index = 0;
+        for (int x = 0; x < board.w; x++) {
+            for (int k = 0; k < result.rowWords; k++) {
+                long word = 0;
+                int end = Math.min(64, board.h - (k << 6));
+                for (int j = 0; j < end; j++, index++)
+                    word |= (long) (~is(board.getFlag(index), 1) & (board.isDiscovered(index) ? 0 : 1)) << j;
+                result.bits[x * result.rowWords + k] = word;
+            }
+        }
+        return result;
+    }
+
+    // 1 if a small non-negative value equals another, else 0
+    private static int is(int value, int other) {
+        return ((value ^ other) - 1) >>> 31;
+    }
+
+    public boolean get(int x, int y) {
+        return (bits[x * rowWords + (y >>> 6)] & (1L << y)) != 0;
+    }
+
+    public void set(int x, int y) {
+        bits[x * rowWords + (y >>> 6)] |= 1L << y;
+    }
+
+    /** @return How many tiles are set. */
+    public int count() {
+        int count = 0;
+        for (long word : bits)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Pass every tile of another board with a tile of this one next to it, in any of the 8 directions, to an action,
+     * by packed index, row by row. Around the hidden tiles, the discovered ones are the frontier.
+     */
+    public void forEachAround(BitBoard other, IntConsumer action) {
+        for (int x = 0; x < w; x++) {
+            for (int k = 0; k < rowWords; k++) {
+                long tiles = other.bits[x * rowWords + k];
+                if (tiles == 0)
+                    continue;
+                long around = 0;
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++)
+                    around |= spread(i * rowWords, k);
+                tiles &= around;
+
+                int base = x * h + (k << 6);
+                while (tiles != 0) {
+                    action.accept(base + Long.numberOfTrailingZeros(tiles));
+                    tiles &= tiles - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link HintBuilder#build(PackedBoard, int)}, but counts the neighbors of 64 tiles at once.
+     * <p>
+     * The counts are bit-sliced: the 8 neighbors of 64 tiles are 8 shifted words of the row above, the row itself and
+     * the row below, and adding them up with full adders gives four words, with bits 0 to 3 of the count of each tile.
+     * Only reading the tiles and writing the hints goes tile by tile.
+     * @param board The board to write the hints into.
+     * @param value The tile to count, usually {@link BoardManager#BOARD_BOMB}.
+     */
+    public static void buildHints(PackedBoard board, int value) {
+        BitBoard counted = of(board, value);
+        int w = board.w, h = board.h, rowWords = counted.rowWords;
+
+        for (int x = 0; x < w; x++) {
+            for (int k = 0; k < rowWords; k++) {
+                int row = x * rowWords + k;
+                long n = x > 0 ? counted.bits[row - rowWords] : 0, c = counted.bits[row];
+                long s = x + 1 < w ? counted.bits[row + rowWords] : 0;
+                long nw = counted.west(x - 1, k, n), ne = counted.east(x - 1, k, n);
+                long cw = counted.west(x, k, c), ce = counted.east(x, k, c);
+                long sw = counted.west(x + 1, k, s), se = counted.east(x + 1, k, s);
+
+                // add the 8 neighbors with full adders: 3 + 3 + 2 ones, then their carries as twos, then fours
+                long a = nw ^ n ^ ne, aCarry = (nw & n) | (ne & (nw ^ n));
+                long b = cw ^ ce ^ sw, bCarry = (cw & ce) | (sw & (cw ^ ce));
+                long d = s ^ se, dCarry = s & se;
+                long ones = a ^ b ^ d, onesCarry = (a & b) | (d & (a ^ b));
+                long t = aCarry ^ bCarry ^ dCarry, tCarry = (aCarry & bCarry) | (dCarry & (aCarry ^ bCarry));
+                long twos = t ^ onesCarry, twosCarry = t & onesCarry;
+                long fours = tCarry ^ twosCarry, eights = tCarry & twosCarry;
+
+                // counted tiles get 0, and then the slices are shifted down a tile at a time
+                ones &= ~c;
+                twos &= ~c;
+                fours &= ~c;
+                eights &= ~c;
+                int base = board.index(x, k << 6);
+                int end = Math.min(64, h - (k << 6));
+                for (int j = 0; j < end; j++) {
+                    board.setHint(base + j,
+                            (int) (ones & 1) | (int) (twos & 1) << 1 | (int) (fours & 1) << 2 | (int) (eights & 1) << 3);
+                    ones >>>= 1;
+                    twos >>>= 1;
+                    fours >>>= 1;
+                    eights >>>= 1;
+                }
+            }
+        }
+    }
+
+    // the tiles to the west of the tiles of a word, in their place, taking bit 63 of the word before. 0 off the board
+    private long west(int x, int k, long word) {
+        if (x < 0 || x >= w)
+            return 0;
+        return word << 1 | (k > 0 ? bits[x * rowWords + k - 1] >>> 63 : 0);
+    }
+
+    private long east(int x, int k, long word) {
+        if (x < 0 || x >= w)
+            return 0;
+        return word >>> 1 | (k + 1 < rowWords ? bits[x * rowWords + k + 1] << 63 : 0);
+    }
+
+    // the tiles of a row word and the ones either side of them, taking the edge bits of the words next to it
+    private long spread(int row, int k) {
+        long word = bits[row + k];
+        long prev = k > 0 ? bits[row + k - 1] : 0;
+        long next = k + 1 < rowWords ? bits[row + k + 1] : 0;
+        return word | word << 1 | prev >>> 63 | word >>> 1 | next << 63;
+    }
+
+    // the bits of the k-th word of a row that are on the board
+    private long rowMask(int k) {
+        int end = h - (k << 6);
+        return end >= 64 ? -1L : (1L << end) - 1;
+    }
+
+    // spread the set bits up through the runs of mask they are in. each step doubles how far they have spread
+    private static long fillUp(long set, long mask) {
+        set |= mask & (set << 1);
+        mask &= mask << 1;
+        set |= mask & (set << 2);
+        mask &= mask << 2;
+        set |= mask & (set << 4);
+        mask &= mask << 4;
+        set |= mask & (set << 8);
+        mask &= mask << 8;
+        set |= mask & (set << 16);
+        mask &= mask << 16;
+        return set | mask & (set << 32);
+    }
+
+    private static long fillDown(long set, long mask) {
+        set |= mask & (set >>> 1);
+        mask &= mask >>> 1;
+        set |= mask & (set >>> 2);
+        mask &= mask >>> 2;
+        set |= mask & (set >>> 4);
+        mask &= mask >>> 4;
+        set |= mask & (set >>> 8);
+        mask &= mask >>> 8;
+        set |= mask & (set >>> 16);
+        mask &= mask >>> 16;
+        return set | mask & (set >>> 32);
+    }
+
+    /**
+     * Finds caves through the tiles of a bitboard, like {@link FloodFill}, and the tiles around them.
+     * <p>
+     * Each row of the cave is filled out along its runs of cave tiles first, then seeds the rows above and below it
+     * through the tiles it touches. Rows are swept down and up until a sweep adds nothing, so a cave costs a few word
+     * operations per word of the rows it spans, however many tiles it has. The cave is kept between calls, and only
+     * its rows are cleared by the next one.
+     */
+    public static class Cave {
+        private final BitBoard open;
+        private final BitBoard filled;
+        private final int w, rowWords;
+        private int firstRow = 0, lastRow = -1; // the rows of filled that have bits set
+
+        /**
+         * @param open The tiles the cave can spread through, see {@link BitBoard#caveTiles(PackedBoard)}.
+         */
+        public Cave(BitBoard open) {
+            this.open = open;
+            this.filled = new BitBoard(open.w, open.h);
+            this.w = open.w;
+            this.rowWords = open.rowWords;
+        }
+
+        /**
+         * Find the cave that holds a tile, connected horizontally, vertically or diagonally.
+         * @return Whether the tile is in a cave at all.
+         */
+        public boolean fill(int x, int y) {
+            for (int i = firstRow * rowWords; i < (lastRow + 1) * rowWords; i++)
+                filled.bits[i] = 0;
+            firstRow = 0;
+            lastRow = -1;
+            if (!open.get(x, y))
+                return false;
+
+            filled.set(x, y);
+            fillRow(x);
+            firstRow = x;
+            lastRow = x;
+
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int row = firstRow + 1; row <= Math.min(lastRow + 1, w - 1); row++) {
+                    if (seed(row - 1, row)) {
+                        changed = true;
+                        lastRow = Math.max(lastRow, row);
+                    }
+                }
+                for (int row = lastRow - 1; row >= Math.max(firstRow - 1, 0); row--) {
+                    if (seed(row + 1, row)) {
+                        changed = true;
+                        firstRow = Math.min(firstRow, row);
+                    }
+                }
+            }
+            return true;
+        }
+
+        // add the open tiles of a row that touch the cave in the row next to it, then fill the row out
+        private boolean seed(int from, int to) {
+            boolean seeded = false;
+            for (int k = 0; k < rowWords; k++) {
+                int index = to * rowWords + k;
+                long seeds = filled.spread(from * rowWords, k) & open.bits[index] & ~filled.bits[index];
+                if (seeds != 0) {
+                    filled.bits[index] |= seeds;
+                    seeded = true;
+                }
+            }
+            if (seeded)
+                fillRow(to);
+            return seeded;
+        }
+
+        // spread the cave along a row through its open tiles, left to right and then back, carrying across words
+        private void fillRow(int row) {
+            long[] set = filled.bits, mask = open.bits;
+            int start = row * rowWords;
+            long carry = 0;
+            for (int k = 0; k < rowWords; k++) {
+                long m = mask[start + k];
+                long f = set[start + k] | (carry & m);
+                f = fillUp(f, m);
+                set[start + k] = fillDown(f, m);
+                carry = set[start + k] >>> 63;
+            }
+            carry = 0;
+            for (int k = rowWords - 1; k >= 0; k--) {
+                long m = mask[start + k];
+                long f = set[start + k] | (carry << 63 & m);
+                f = fillDown(f, m);
+                set[start + k] = fillUp(f, m);
+                carry = set[start + k] & 1;
+            }
+        }
+
+        /**
+         * Pass every tile of the last cave to an action, by packed index, row by row.
+         */
+        public void forEachTile(IntConsumer action) {
+            int h = filled.h;
+            for (int x = firstRow; x <= lastRow; x++) {
+                for (int k = 0; k < rowWords; k++) {
+                    long tiles = filled.bits[x * rowWords + k];
+                    int base = x * h + (k << 6);
+                    while (tiles != 0) {
+                        action.accept(base + Long.numberOfTrailingZeros(tiles));
+                        tiles &= tiles - 1;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Pass every tile of the last cave, and every tile around it, to an action, by packed index, row by row.
+         */
+        public void forEach(IntConsumer action) {
+            int h = filled.h;
+            for (int x = Math.max(firstRow - 1, 0); x <= Math.min(lastRow + 1, w - 1); x++) {
+                for (int k = 0; k < rowWords; k++) {
+                    long around = 0;
+                    for (int i = Math.max(x - 1, firstRow); i <= Math.min(x + 1, lastRow); i++)
+                        around |= filled.spread(i * rowWords, k);
+                    around &= filled.rowMask(k);
+
+                    int base = x * h + (k << 6);
+                    while (around != 0) {
+                        action.accept(base + Long.numberOfTrailingZeros(around));
+                        around &= around - 1;
+                    }
+                }
+            }
+        }
+    }
+}
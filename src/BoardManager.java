@@ -1,4 +1,6 @@
 import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
 
 public class BoardManager {
 
@@ -12,253 +14,531 @@ public class BoardManager {
     public static final int STEPPED_ON_RADAR = 2;
     public static final int STEPPED_ON_ROCKET = 3;
 
-    public int[][] board; // contents of board - 0 - empty, 1 - bomb, 2 - radar
-    public boolean[][] discovered;
-    public int[][] flags; // 0 - no flag, 1 - flagged, 2 - question mark
-    public int[][] bombHints; // n bombs
-    public int[][] powerHints; // UNUSED - has powerup in radius
-    public int bombCount, radarCount, rocketCount, flagCount = 0, discoveredCount = 0;
+    public PackedBoard board; // contents, bomb hints, discovered and flags (0 - no flag, 1 - flagged, 2 - question mark) of every tile
+    public int bombCount, radarCount, rocketCount, flagCount = 0;
+    public int discoveredCount = 0; // every discovered tile, kept exact by reveal
+    public int bombsPlaced = 0, correctFlags = 0, wrongFlags = 0; // win state, kept up to date by setFlag
 
-    public int boardX = 10, boardW = 600, boardY = 120, boardH = 600, gap = 5, w, h, tileW, tileH;
+    public int w, h;
     public boolean gameOver = false, clickedYet = false, won = false;
+    public boolean noGuess = false; // make a board that can be solved without guessing, set before the first click
+    public BoardPool.Entry pooled; // boards made ahead of time for this seed, or null
+    public GameRecord recording; // every step and flag is added to it, or null
+    // boards this big reveal caves on every core with CaveReveal. off by default, since BitBoard.Cave on one thread
+    // beats it on 1 or 8, see CaveReveal#main
+    public int parallelRevealSize = Integer.MAX_VALUE;
+
+    public final long seed; // every board with the same seed, size and first click is identical, see createLayout
+
+    private static final int SAFE_RADIUS = 2; // no bombs this close to the first click
+    private static final int PARALLEL_HINTS_SIZE = 1 << 20; // boards this big build their hints on every core
+    private static final int BIT_HINTS_DENSITY = 12; // boards with a bomb in every this many tiles count hints on bitboards
+    private BitBoard.Cave caves; // made on the first cave of a board, and dropped when its hints change
+    private SplittableRandom random;
+    private int[] cellOrder; // scratch space for randomFill
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    private final RevealDelta revealed; // what the current or last action revealed
+    private boolean announced; // whether the listeners have been told about revealed
+
+    /**
+     * Gets told about every visible change to the board, so views can redraw just what changed.
+     * Every method does nothing by default.
+     */
+    public interface Listener {
+        /** A tile was discovered. */
+        default void tileRevealed(int x, int y) {
+        }
+
+        /**
+         * Tiles were discovered by a step or a flag. Called once for each action that discovers any, before
+         * {@link #gameEnded} if it ends the game. Calls {@link #tileRevealed} for each tile by default.
+         */
+        default void tilesRevealed(RevealDelta delta) {
+            for (int i = 0; i < delta.size(); i++)
+                tileRevealed(delta.x(i), delta.y(i));
+        }
+
+        /** The content of a discovered tile changed, like a powerup being used up. */
+        default void tileChanged(int x, int y) {
+        }
+
+        /** A flag was placed or removed. */
+        default void flagChanged(int x, int y) {
+        }
+
+        /** The game ended. The tiles it uncovered were passed to {@link #tilesRevealed} just before. */
+        default void gameEnded(boolean won) {
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
 
     public boolean isDiscovered(int x, int y) {
-        return discovered[x][y];
+        return board.isDiscovered(board.index(x, y));
     }
 
     public int getTile(int x, int y) {
-        return board[x][y];
+        return board.getTile(board.index(x, y));
+    }
+
+    /**
+     * @return How many bombs the player is told the board has. Powerups can land on bombs, so once the board is made,
+     * this is how many were really placed.
+     */
+    public int getShownBombCount() {
+        return clickedYet ? bombsPlaced : bombCount;
+    }
+
+    public int getFlag(int x, int y) {
+        return board.getFlag(board.index(x, y));
     }
 
     public int getHint(int x, int y, int val) {
         if (val == BOARD_BOMB) {
-            return bombHints[x][y];
+            return board.getHint(board.index(x, y));
         } else if (val == BOARD_RADAR) {
-            return powerHints[x][y];
+            return 0; // UNUSED - powerup hints are not tracked
         } else
             throw new IllegalArgumentException("val is inval(id)");
     }
 
-    public boolean opensCave(int x, int y, int[][] boardb) {
-        ArrayList<int[]> cave = DFS.cave(bombHints, boardb, x, y, 0);
-        System.out.println("Cave size: " + cave.size());
-        return cave.size() >= 5;
+    /**
+     * @return The tiles the last step or flag revealed, including every tile at once if it ended the game. Reused by
+     * the next action.
+     */
+    public RevealDelta getRevealed() {
+        return revealed;
+    }
+
+    // every tile is discovered through here, so the count and the delta never miss one
+    private void reveal(int index) {
+        if (board.isDiscovered(index))
+            return;
+        board.setDiscovered(index, true);
+        discoveredCount++;
+        revealed.add(index);
+    }
+
+    // tell the listeners about the tiles the action revealed. a game over does this early, before it ends the game,
+    // and nothing is revealed after that
+    private void announce() {
+        if (announced || revealed.size() == 0)
+            return;
+        announced = true;
+        for (Listener listener : listeners)
+            listener.tilesRevealed(revealed);
+    }
+
+    private void startAction() {
+        revealed.clear();
+        announced = false;
     }
 
     public int stepOnTile(int x, int y) {
+        if (recording != null && !gameOver)
+            recording.record(GameRecord.STEP, x, y);
+
+        startAction();
+        long start = Profiler.STEP.begin();
+        int result;
+        try {
+            result = step(x, y);
+        } finally {
+            Profiler.STEP.end(start);
+        }
+        announce();
+        return result;
+    }
 
+    private int step(int x, int y) {
         // if first click, make this the first click
         if (!clickedYet) {
             clickedYet = true;
             createBoard(x, y);
         }
+
+        int index = board.index(x, y);
         
         // if dead, dont do anything
-        if (gameOver || flags[x][y] == 1)
+        if (gameOver || board.getFlag(index) == 1)
             return STEPPED_ON_EMPTY;
 
+        int tile = board.getTile(index);
+
         // if you clicked on a bomb that is not flagged, you lose
-        if (board[x][y] == BOARD_BOMB && flags[x][y] == 0) {
+        if (tile == BOARD_BOMB && board.getFlag(index) == 0) {
             gameOver();
             return STEPPED_ON_BOMB;
 
         // if you clicked on a discovered powerup
-        } else if (board[x][y] == BOARD_RADAR && discovered[x][y]) {
-            int temp = board[x][y];
-            board[x][y] = BOARD_EMPTY;
-            return temp;
+        } else if (tile == BOARD_RADAR && board.isDiscovered(index)) {
+            board.setTile(index, BOARD_EMPTY);
+            for (Listener listener : listeners)
+                listener.tileChanged(x, y);
+            return tile;
         
-        } else if (board[x][y] == BOARD_ROCKET && discovered[x][y]) {
-            int temp = board[x][y];
-            board[x][y] = BOARD_EMPTY;
-
-            for(int i = x; i < board.length; i++) {
-                if (board[i][y] == BOARD_BOMB && flags[i][y] == 0) {
-                    flags[i][y] = 1;
+        } else if (tile == BOARD_ROCKET && board.isDiscovered(index)) {
+            board.setTile(index, BOARD_EMPTY);
+            for (Listener listener : listeners)
+                listener.tileChanged(x, y);
+
+            for(int i = x; i < w; i++) {
+                int rowIndex = board.index(i, y);
+                if (board.getTile(rowIndex) == BOARD_BOMB && board.getFlag(rowIndex) == 0) {
+                    setFlag(rowIndex, 1);
                     break;
                 } else {
-                    discovered[i][y] = true;
+                    reveal(rowIndex);
                 }
             }
 
             for(int i = x; i > -1; i--) {
-                if (board[i][y] == BOARD_BOMB) {
-                    flags[i][y] = 1;
+                int rowIndex = board.index(i, y);
+                if (board.getTile(rowIndex) == BOARD_BOMB) {
+                    setFlag(rowIndex, 1);
                     break;
                 } else {
-                    discovered[i][y] = true;
+                    reveal(rowIndex);
                 }
             }
-    
-            return temp;
+
+            checkWin();
+            return tile;
         
 
         // if clicked on a clear tile, open a cave
-        } else if (bombHints[x][y] == 0) {
-            ArrayList<int[]> cave = DFS.cave(bombHints, board, x, y, 0);
-            for (int[] coord : cave) {
-                discovered[coord[0]][coord[1]] = true;
-                for (int[] neighborCoord : DFS.getNeighbors(coord[0], coord[1], board)) {
-                    if(!discovered[neighborCoord[0]][neighborCoord[1]])
-                        discoveredCount++;
-                    discovered[neighborCoord[0]][neighborCoord[1]] = true;
-                }
-            }
+        } else if (board.getHint(index) == 0 && board.size() >= parallelRevealSize) {
+            // these are discovered already, so they only need counting
+            int[] cave = CaveReveal.reveal(board, x, y);
+            discoveredCount += cave.length;
+            for (int cell : cave)
+                revealed.add(cell);
+
+        } else if (board.getHint(index) == 0) {
+            // caves spread over 64 tiles a step, and the border comes from the same bits
+            caves().fill(x, y);
+            caves.forEach(this::reveal);
         }
 
-        discovered[x][y] = true;
+        reveal(index);
         return STEPPED_ON_EMPTY;
     }
 
+    /**
+     * Pass every tile of the cave that holds a tile to an action, by packed index, without revealing anything.
+     * Nothing is passed if the tile is not in a cave.
+     */
+    public void forEachCaveTile(int x, int y, IntConsumer action) {
+        if (caves().fill(x, y))
+            caves.forEachTile(action);
+    }
+
+    private BitBoard.Cave caves() {
+        if (caves == null)
+            caves = new BitBoard.Cave(BitBoard.caveTiles(board));
+        return caves;
+    }
+
     public void flagTile(int x, int y) {
+        if (recording != null && !gameOver)
+            recording.record(GameRecord.FLAG, x, y);
 
-        System.out.println("flagging tile " + x + ", " + y);
+        startAction();
+        flag(x, y);
+        announce();
+    }
+
+    private void flag(int x, int y) {
+        int index = board.index(x, y);
 
         // make sure its not discovered
-        if (!clickedYet || discovered[x][y])
+        if (!clickedYet || board.isDiscovered(index))
             return;
 
         // flag the tile
-        if (flags[x][y] == 0) {
-            flags[x][y] = 1;
-            flagCount++;
-        } else if (flags[x][y] == 1) {
-            flags[x][y] = 0;
-            flagCount--;
-        } else if (flags[x][y] == 2) {
-            flags[x][y] = 0;
-        }
+        setFlag(index, board.getFlag(index) == 0 ? 1 : 0);
 
-        // check if all bombs are flagged
-        boolean allClear = true;
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[0].length; j++) {
-                int tile = board[i][j];
-                if (tile != BOARD_BOMB) continue;
-                if (flags[i][j] != 1) {
-                    allClear = false;
-                };
-            }
-        }
+        checkWin();
+    }
 
-        if (allClear) {
+    /**
+     * Change the flag of a tile, keeping {@link #flagCount}, {@link #correctFlags} and {@link #wrongFlags} in sync.
+     * Every flag change must go through here, or the win check will drift.
+     * @param index The packed index of the tile.
+     * @param flag The new flag, 0 - no flag, 1 - flagged, 2 - question mark.
+     */
+    private void setFlag(int index, int flag) {
+        int prev = board.getFlag(index);
+        if (prev == flag)
+            return;
+
+        board.setFlag(index, flag);
+        for (Listener listener : listeners)
+            listener.flagChanged(index / h, index % h);
+        if (prev != 1 && flag != 1)
+            return;
+
+        int change = flag == 1 ? 1 : -1;
+        flagCount += change;
+        if (board.getTile(index) == BOARD_BOMB)
+            correctFlags += change;
+        else
+            wrongFlags += change;
+    }
+
+    // won once every bomb is flagged. wrong flags do not stop a win, they are only counted
+    private void checkWin() {
+        assert countersConsistent() : "flag counters out of sync with the board";
+        if (!gameOver && correctFlags == bombsPlaced) {
             won = true;
             gameOver();
         }
-
     }
 
-    public void randomFill(int[][] board, int count, int val, int[] dontFill) {
-        for (int i = 0; i < count; i++) { // for each time to spawn a val
-            int x = (int) (Math.random() * board.length);
-            int y = (int) (Math.random() * board[0].length);
-
-            // if on top of dontFill, try again
-            if (dontFill != null && x == dontFill[0] && y == dontFill[1]) {
-                i--;
-                continue;
-            }
-
-            // if on top of another val, try again
-            if (board[x][y] == val) {
-                i--;
-                continue;
-            }
-
-            // get distance to dontfill
-            double distLim = 2.0;
-            double dist = distLim + 1.0;
-            if (dontFill != null) {
-                double dx = x - dontFill[0];
-                double dy = y - dontFill[1];
-                dist = Math.sqrt(dx * dx + dy * dy);
-            }
+    /**
+     * Debug check that recounts the bombs and flags with a full scan of the board, and compares them against the
+     * incrementally tracked counters. Runs on every win check when assertions are enabled ({@code java -ea}).
+     * @return Whether every counter matches the board.
+     */
+    public boolean countersConsistent() {
+        int bombs = 0, flagged = 0, correct = 0, wrong = 0;
+        for (int i = 0; i < board.size(); i++) {
+            boolean bomb = board.getTile(i) == BOARD_BOMB;
+            boolean flag = board.getFlag(i) == 1;
+            if (bomb) bombs++;
+            if (flag) flagged++;
+            if (flag && bomb) correct++;
+            if (flag && !bomb) wrong++;
+        }
+        return bombs == bombsPlaced && flagged == flagCount && correct == correctFlags && wrong == wrongFlags;
+    }
 
-            // if too close to dontFill, try again
-            if (dist < distLim) {
-                i--;
-                continue;
+    /**
+     * Place {@code count} copies of {@code val} on random tiles, with a partial Fisher-Yates shuffle over the eligible tiles.
+     * A tile is eligible if it does not already hold {@code val} and is at least 2 tiles away from {@code dontFill}.
+     * This always terminates, and costs one pass to collect the eligible tiles plus O(count) to place them.
+     * @param count How many tiles to fill.
+     * @param val The tile to fill them with.
+     * @param dontFill The tile to keep clear, with its neighbors, or null.
+     * @throws IllegalArgumentException If there are fewer eligible tiles than {@code count}.
+     */
+    public void randomFill(int count, int val, int[] dontFill) {
+        if (cellOrder == null)
+            cellOrder = new int[board.size()];
+
+        // collect the tiles that are allowed to hold val
+        int eligible = 0;
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                int index = board.index(x, y);
+                if (board.getTile(index) == val)
+                    continue;
+                if (dontFill != null && inSafeZone(x, y, dontFill))
+                    continue;
+                cellOrder[eligible++] = index;
             }
+        }
 
-            // set the tile
-            board[x][y] = val;
+        if (count > eligible)
+            throw new IllegalArgumentException("cannot place " + count + " tiles, only " + eligible + " are free");
 
+        // shuffle just the first count tiles into place
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(eligible - i);
+            int index = cellOrder[j];
+            cellOrder[j] = cellOrder[i];
+            cellOrder[i] = index;
+            board.setTile(index, val);
         }
     }
 
     public void gameOver() {
         // set everything to discovered
         gameOver = true;
-        for (int i = 0; i < discovered.length; i++) {
-            for (int j = 0; j < discovered[0].length; j++) {
-                discovered[i][j] = true;
-            }
+        for (int i = 0; i < board.size(); i++) {
+            reveal(i);
         }
+        announce();
+        for (Listener listener : listeners)
+            listener.gameEnded(won);
     }
 
     public void createBoard(int firstClickX, int firstClickY) {
-        randomFill(board, bombCount, BOARD_BOMB, new int[] { firstClickX, firstClickY });
-        randomFill(board, bombCount / 7, BOARD_RADAR, null);
-        randomFill(board, 2, BOARD_ROCKET, null);
+        long start = Profiler.CREATE_BOARD.begin();
+        try {
+            PackedBoard layout = pooled != null ? pooled.take(this, firstClickX, firstClickY) : null;
+            board = layout != null ? layout : createLayout(firstClickX, firstClickY);
+            caves = null;
+
+            int[] from = canonicalClick(firstClickX, firstClickY);
+            if (from[0] != firstClickX || from[1] != firstClickY) {
+                moveSafeZone(from, new int[] { firstClickX, firstClickY });
+                createHints(BOARD_BOMB);
+            }
+            countBombs();
+        } finally {
+            Profiler.CREATE_BOARD.end(start);
+        }
+    }
+
+    /**
+     * Make the board for a first click, with the tiles around {@link #canonicalClick} kept clear and the hints built.
+     * {@link #createBoard} then moves the clear tiles to the real click.
+     * <p>
+     * Clicks with the same number of neighbors share one layout, so boards can be made before the first click is known,
+     * see {@link BoardPool}. The layout only depends on the seed, so it can be made on another BoardManager with the
+     * same seed and settings, on any thread.
+     */
+    public PackedBoard createLayout(int firstClickX, int firstClickY) {
+        if (noGuess) {
+            PackedBoard layout = NoGuessGenerator.generate(this, firstClickX, firstClickY);
+            if (layout != null)
+                return layout;
+            // no candidate passed, or the generation was cancelled, so fall back to a normal board
+        }
 
-        bombHints = createHints(board, BOARD_BOMB);
+        // start the random source over, so a layout made again, like after an undo, comes out the same
+        random = new SplittableRandom(seed);
+        int[] click = canonicalClick(firstClickX, firstClickY);
+        randomFill(bombCount, BOARD_BOMB, click);
+        randomFill(bombCount / 7, BOARD_RADAR, null);
+        randomFill(2, BOARD_ROCKET, null);
+        createHints(BOARD_BOMB);
+        return board;
+    }
+
+    /**
+     * The first click that layouts for a click are made around. No-guess boards only work for their own click, other
+     * boards use the first tile, in row order, with as many neighbors as the click.
+     */
+    public int[] canonicalClick(int x, int y) {
+        if (noGuess)
+            return new int[] { x, y };
+        int zone = safeZoneSize(x, y);
+        for (int i = 0; i < w; i++)
+            for (int j = 0; j < h; j++)
+                if (safeZoneSize(i, j) == zone)
+                    return new int[] { i, j };
+        return new int[] { x, y };
+    }
+
+    /**
+     * @return The key of the layouts a first click can use, the same for every click with the same canonical click.
+     */
+    public int firstClickClass(int x, int y) {
+        return noGuess ? -1 - board.index(x, y) : safeZoneSize(x, y);
+    }
+
+    // the tiles randomFill keeps clear around the first click
+    private boolean inSafeZone(int x, int y, int[] click) {
+        int dx = x - click[0];
+        int dy = y - click[1];
+        return dx * dx + dy * dy < SAFE_RADIUS * SAFE_RADIUS;
+    }
+
+    private int safeZoneSize(int x, int y) {
+        int size = 0;
+        int[] click = { x, y };
+        for (int i = Math.max(x - SAFE_RADIUS, 0); i <= Math.min(x + SAFE_RADIUS, w - 1); i++)
+            for (int j = Math.max(y - SAFE_RADIUS, 0); j <= Math.min(y + SAFE_RADIUS, h - 1); j++)
+                if (inSafeZone(i, j, click))
+                    size++;
+        return size;
+    }
+
+    // swap the tiles only around from with the tiles only around to. both zones are the same size, and swapping is a
+    // one to one map of boards, so a uniformly random board stays uniformly random
+    private void moveSafeZone(int[] from, int[] to) {
+        ArrayList<Integer> onlyFrom = new ArrayList<>(), onlyTo = new ArrayList<>();
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                boolean inFrom = inSafeZone(x, y, from), inTo = inSafeZone(x, y, to);
+                if (inFrom && !inTo)
+                    onlyFrom.add(board.index(x, y));
+                else if (inTo && !inFrom)
+                    onlyTo.add(board.index(x, y));
+            }
+        }
+        for (int i = 0; i < onlyFrom.size(); i++) {
+            int a = onlyFrom.get(i), b = onlyTo.get(i);
+            int tile = board.getTile(a);
+            board.setTile(a, board.getTile(b));
+            board.setTile(b, tile);
+        }
+    }
+
+    // powerups can land on bombs, so count what is actually left
+    private void countBombs() {
+        bombsPlaced = 0;
+        for (int i = 0; i < board.size(); i++) {
+            if (board.getTile(i) == BOARD_BOMB)
+                bombsPlaced++;
+        }
     }
     
     public BoardManager(int w, int h, int bombCount, int radarCount, int rocketCount) {
-        
+        this(w, h, bombCount, radarCount, rocketCount, new SplittableRandom().nextLong());
+    }
+
+    public BoardManager(int w, int h, int bombCount, int radarCount, int rocketCount, long seed) {
+
+        // the first click keeps up to 9 tiles clear, so make sure the bombs always fit
+        if (bombCount < 0 || bombCount > w * h - 9)
+            throw new IllegalArgumentException("cannot fit " + bombCount + " bombs on a " + w + "x" + h + " board");
+
         this.w = w;
         this.h = h;
         this.bombCount = bombCount;
         this.radarCount = radarCount;
         this.rocketCount = rocketCount;
+        this.seed = seed;
+        random = new SplittableRandom(seed);
         
-        board = new int[w][h];
-        discovered = new boolean[w][h];
-        flags = new int[w][h];
-
-        tileW = boardW / h - gap;
-        tileH = boardH / w - gap;
+        board = new PackedBoard(w, h);
+        revealed = new RevealDelta(h);
     }
 
-    public int[][] createHints(int[][] board, int value) {
-        int[][] hints = new int[board.length][board[0].length];
-        for (int i = 0; i < hints.length; i++) {
-            for (int j = 0; j < hints[0].length; j++) {
-                if (board[i][j] == value)
-                    continue;
-                int[][] neighborCoords = DFS.getNeighbors(i, j, board);
-                int explosiveNeighbors = 0;
-                for (int[] neighborCoord : neighborCoords) {
-                    if (board[neighborCoord[0]][neighborCoord[1]] == value) {
-                        explosiveNeighbors++;
-                    }
-                }
-                hints[i][j] = explosiveNeighbors;
-            }
-        }
-        return hints;
+    public void createHints(int value) {
+        caves = null;
+        if (board.size() >= PARALLEL_HINTS_SIZE)
+            HintBuilder.buildParallel(board, value);
+        else if (value == BOARD_BOMB && bombCount * BIT_HINTS_DENSITY >= board.size())
+            // bitboards count every tile at the same cost, so they only win once bombs are dense
+            BitBoard.buildHints(board, value);
+        else
+            HintBuilder.build(board, value);
     }
 
     public String[] getToolTip(int x, int y) {
+        int index = board.index(x, y);
+        int tile = board.getTile(index);
         String content = "Empty Tile";
-        if (board[x][y] == BOARD_BOMB) {
+        if (tile == BOARD_BOMB) {
             content = "Bomb";
-        } else if (board[x][y] == BOARD_RADAR) {
+        } else if (tile == BOARD_RADAR) {
             content = "Radar";
-        } else if (board[x][y] == BOARD_ROCKET) {
+        } else if (tile == BOARD_ROCKET) {
             content = "Rocket";
         }
 
+        int bombHint = board.getHint(index);
         String hint = "0 bombs nearby";
-        if (bombHints[x][y] == 1) {
+        if (bombHint == 1) {
             hint = "1 bomb nearby";
-        } else if (bombHints[x][y] > 1) {
-            hint = bombHints[x][y] + " bombs nearby";
+        } else if (bombHint > 1) {
+            hint = bombHint + " bombs nearby";
         }
 
-        String disc = discovered[x][y] ? "Discovered" : "Undiscovered";
-        String flag = flags[x][y] == 1 ? "Flagged" : flags[x][y] == 2 ? "Unknown" : "No Flag";
+        int flag = board.getFlag(index);
+        String disc = board.isDiscovered(index) ? "Discovered" : "Undiscovered";
+        String flagText = flag == 1 ? "Flagged" : flag == 2 ? "Unknown" : "No Flag";
 
-        return new String[] { content, hint, disc + ", " + flag };
+        return new String[] { content, hint, disc + ", " + flagText };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,267 @@
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes boards ahead of time on background threads, so neither a reset nor the first click has to wait on generation.
+ * <p>
+ * A board only depends on its seed, its settings and the class of the first click, see
+ * {@link BoardManager#createLayout(int, int)}. For each set of settings the pool keeps a few {@link Entry}s ready, each
+ * a seed with the layout for every first click class already made. {@link #newBoard} hands one out on reset, and the
+ * first click takes the layout for its class from it. No-guess layouts only work for one click, so they are made when
+ * the mouse rests on a tile before the first click, see {@link Entry#prefetch(BoardManager, int, int)}. Only the one
+ * under the mouse is made at a time: moving to another tile interrupts it, which {@link NoGuessGenerator} stops on.
+ * <p>
+ * Hits and misses are counted for both, see {@link #getReport()}.
+ */
+public class BoardPool {
+
+    private static final int MAX_SETTINGS = 8; // boards are kept for this many sets of settings at once
+
+    /**
+     * A seed, and the layouts made for it so far, by {@link BoardManager#firstClickClass(int, int)}.
+     */
+    public class Entry {
+        public final long seed;
+        private final Settings settings;
+        private final ConcurrentHashMap<Integer, Future<PackedBoard>> layouts = new ConcurrentHashMap<>();
+
+        private Entry(Settings settings, long seed) {
+            this.settings = settings;
+            this.seed = seed;
+        }
+
+        /**
+         * Start making the layout for a first click in the background, if it is not made or being made already.
+         */
+        public void prefetch(BoardManager boardManager, int x, int y) {
+            int click = boardManager.firstClickClass(x, y);
+            if (settings.noGuess) {
+                // only the tile under the mouse matters, so stop the ones it has moved off, even if they have started.
+                // otherwise a sweep of the mouse fills every producer, and the clicked tile waits behind them
+                layouts.entrySet().removeIf(layout -> layout.getKey() != click && layout.getValue().cancel(true));
+            }
+            layouts.computeIfAbsent(click, c -> producers.submit(() -> layout(x, y)));
+        }
+
+        /**
+         * Take the layout for a first click, waiting for it if it is still being made.
+         * @return The layout, or null if it was never started.
+         */
+        public PackedBoard take(BoardManager boardManager, int x, int y) {
+            Future<PackedBoard> layout = layouts.remove(boardManager.firstClickClass(x, y));
+            if (layout == null) {
+                clickMisses.incrementAndGet();
+                return null;
+            }
+            (layout.isDone() ? clickHits : clickWaits).incrementAndGet();
+            try {
+                return layout.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("could not make the layout", e.getCause());
+            }
+        }
+
+        // make a layout on a fresh BoardManager with this seed, which gives the same board as the one playing
+        private PackedBoard layout(int x, int y) {
+            return settings.create(seed).createLayout(x, y);
+        }
+
+        // make the layout of every first click class, on this thread or in the background
+        private void fill(boolean inBackground) {
+            BoardManager boardManager = settings.create(seed);
+            HashSet<Integer> classes = new HashSet<>();
+            for (int x = 0; x < settings.w; x++) {
+                for (int y = 0; y < settings.h; y++) {
+                    // the first tile of each class, in row order, is its canonical click
+                    int c = boardManager.firstClickClass(x, y);
+                    if (!classes.add(c))
+                        continue;
+                    if (inBackground)
+                        prefetch(boardManager, x, y);
+                    else
+                        layouts.put(c, CompletableFuture.completedFuture(layout(x, y)));
+                }
+            }
+        }
+    }
+
+    // everything a board depends on apart from the seed
+    private static final class Settings {
+        final int w, h, bombCount, radarCount, rocketCount;
+        final boolean noGuess;
+
+        Settings(int w, int h, int bombCount, int radarCount, int rocketCount, boolean noGuess) {
+            this.w = w;
+            this.h = h;
+            this.bombCount = bombCount;
+            this.radarCount = radarCount;
+            this.rocketCount = rocketCount;
+            this.noGuess = noGuess;
+        }
+
+        BoardManager create(long seed) {
+            BoardManager boardManager = new BoardManager(w, h, bombCount, radarCount, rocketCount, seed);
+            boardManager.noGuess = noGuess;
+            return boardManager;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Settings))
+                return false;
+            Settings o = (Settings) other;
+            return w == o.w && h == o.h && bombCount == o.bombCount && radarCount == o.radarCount
+                    && rocketCount == o.rocketCount && noGuess == o.noGuess;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = w;
+            hash = hash * 31 + h;
+            hash = hash * 31 + bombCount;
+            hash = hash * 31 + radarCount;
+            hash = hash * 31 + rocketCount;
+            return hash * 2 + (noGuess ? 1 : 0);
+        }
+    }
+
+    private final int capacity;
+    private final ExecutorService producers;
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    // ready entries and entries being made, by settings, least recently used first
+    private final LinkedHashMap<Settings, ArrayBlockingQueue<Entry>> ready = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<Settings, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong resetHits = new AtomicLong(), resetMisses = new AtomicLong();
+    private final AtomicLong clickHits = new AtomicLong(), clickWaits = new AtomicLong(), clickMisses = new AtomicLong();
+
+    /**
+     * @param capacity How many boards to keep ready for each set of settings.
+     * @param threads How many background threads make them.
+     */
+    public BoardPool(int capacity, int threads) {
+        this.capacity = capacity;
+        producers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "board pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Make a game with a board from the pool, or with a new seed whose boards start being made now if the pool is empty.
+     * Either way the pool is topped up in the background.
+     */
+    public BoardManager newBoard(int w, int h, int bombCount, int radarCount, int rocketCount, boolean noGuess) {
+        Settings settings = new Settings(w, h, bombCount, radarCount, rocketCount, noGuess);
+        Entry entry = queue(settings).poll();
+        if (entry != null) {
+            resetHits.incrementAndGet();
+        } else {
+            resetMisses.incrementAndGet();
+            entry = new Entry(settings, nextSeed());
+            if (!noGuess)
+                entry.fill(true);
+        }
+        refill(settings);
+
+        BoardManager boardManager = settings.create(entry.seed);
+        boardManager.pooled = entry;
+        return boardManager;
+    }
+
+    private synchronized ArrayBlockingQueue<Entry> queue(Settings settings) {
+        ArrayBlockingQueue<Entry> queue = ready.get(settings);
+        if (queue == null) {
+            queue = new ArrayBlockingQueue<>(capacity);
+            ready.put(settings, queue);
+
+            // forget the boards of settings that have not been used in a while
+            if (ready.size() > MAX_SETTINGS) {
+                Map.Entry<Settings, ArrayBlockingQueue<Entry>> eldest = ready.entrySet().iterator().next();
+                ready.remove(eldest.getKey());
+                pending.remove(eldest.getKey());
+            }
+        }
+        return queue;
+    }
+
+    // start making entries until the ready ones and the ones being made fill the capacity
+    private void refill(Settings settings) {
+        AtomicInteger making = pending.computeIfAbsent(settings, s -> new AtomicInteger());
+        ArrayBlockingQueue<Entry> queue = queue(settings);
+        while (true) {
+            int count = making.get();
+            if (count + queue.size() >= capacity)
+                return;
+            if (!making.compareAndSet(count, count + 1))
+                continue;
+            producers.execute(() -> {
+                try {
+                    Entry entry = new Entry(settings, nextSeed());
+                    if (!settings.noGuess)
+                        entry.fill(false);
+                    // this queue, not queue(settings): if the settings were forgotten meanwhile, looking them up again
+                    // would bring them back and push out another's boards
+                    queue.offer(entry);
+                } finally {
+                    making.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private synchronized long nextSeed() {
+        return seeds.nextLong();
+    }
+
+    public long getResetHits() {
+        return resetHits.get();
+    }
+
+    public long getResetMisses() {
+        return resetMisses.get();
+    }
+
+    public long getClickHits() {
+        return clickHits.get();
+    }
+
+    /** First clicks whose layout was still being made, and had to be waited for. */
+    public long getClickWaits() {
+        return clickWaits.get();
+    }
+
+    public long getClickMisses() {
+        return clickMisses.get();
+    }
+
+    /**
+     * @return The hits and misses of resets and first clicks, and how many boards are ready.
+     */
+    public String getReport() {
+        int readyCount = 0;
+        synchronized (this) {
+            for (ArrayBlockingQueue<Entry> queue : ready.values())
+                readyCount += queue.size();
+        }
+        return String.format("resets: %d hit, %d missed. first clicks: %d hit, %d waited, %d missed. %d boards ready",
+                resetHits.get(), resetMisses.get(), clickHits.get(), clickWaits.get(), clickMisses.get(), readyCount);
+    }
+}
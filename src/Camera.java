@@ -0,0 +1,163 @@
+/**
+ * Which part of the board is on screen, and how big its tiles are drawn.
+ * <p>
+ * The board is laid out on a grid with a pitch of a whole number of pixels per tile, gap included, and the camera looks
+ * at a fixed view rectangle of the screen, panned some pixels into that grid. Everything is in whole pixels, so tiles
+ * never drift against each other as the camera moves. Boards smaller than the view sit at its top left.
+ * <p>
+ * A camera can also look at a board with no edges, see {@link #endless(int)}, where it pans anywhere.
+ */
+public class Camera {
+
+    public static final int MIN_PITCH = 1, MAX_PITCH = 120;
+    public static final int MAX_GAP = 5;
+    private static final double ZOOM_STEP = 1.25; // how much one wheel notch zooms
+
+    public final int viewX, viewY, viewW, viewH;
+    private int rows = 1, cols = 1;
+    private boolean bounded = true; // false for boards with no edges
+    private int pitch = MIN_PITCH, panX, panY;
+
+    public Camera(int viewX, int viewY, int viewW, int viewH) {
+        this.viewX = viewX;
+        this.viewY = viewY;
+        this.viewW = viewW;
+        this.viewH = viewH;
+    }
+
+    /**
+     * Look at a new board, zoomed out as far as it takes to show all of it, or as far as possible if it is too big.
+     * @param rows The rows of the board, {@link BoardManager#w}.
+     * @param cols The columns of the board, {@link BoardManager#h}.
+     */
+    public void fit(int rows, int cols) {
+        bounded = true;
+        this.rows = rows;
+        this.cols = cols;
+        pitch = clampPitch(Math.min(viewW / cols, viewH / rows));
+        panX = 0;
+        panY = 0;
+        clampPan();
+    }
+
+    /**
+     * Look at a board with no edges, like an {@link EndlessBoard}, with tile (0, 0) in the middle of the view. Every
+     * row and column is then on the board, and panning is not limited.
+     * @param pitch The pixels from one tile to the next, gap included.
+     */
+    public void endless(int pitch) {
+        bounded = false;
+        this.pitch = clampPitch(pitch);
+        panX = -viewW / 2;
+        panY = -viewH / 2;
+    }
+
+    /** @return The pixels from one tile to the next, gap included. */
+    public int getPitch() {
+        return pitch;
+    }
+
+    /** @return The pixels between tiles, which shrinks as the tiles get smaller. */
+    public int getGap() {
+        return Math.min(MAX_GAP, pitch / 6);
+    }
+
+    /** @return The size of a tile, without the gap. */
+    public int getTileSize() {
+        return pitch - getGap();
+    }
+
+    /** @return The screen x of the left of a column's tiles. */
+    public int tileX(int col) {
+        return viewX + getGap() + col * pitch - panX;
+    }
+
+    /** @return The screen y of the top of a row's tiles. */
+    public int tileY(int row) {
+        return viewY + getGap() + row * pitch - panY;
+    }
+
+    /** @return The column under a screen x, which may be off the board. */
+    public int colAt(int screenX) {
+        return Math.floorDiv(screenX - viewX + panX, pitch);
+    }
+
+    /** @return The row under a screen y, which may be off the board. */
+    public int rowAt(int screenY) {
+        return Math.floorDiv(screenY - viewY + panY, pitch);
+    }
+
+    /**
+     * @return The tile under a point on the screen as its row and column, or null if there is none in view there.
+     */
+    public int[] tileAt(int screenX, int screenY) {
+        if (screenX < viewX || screenX >= viewX + viewW || screenY < viewY || screenY >= viewY + viewH)
+            return null;
+        int row = rowAt(screenY), col = colAt(screenX);
+        if (bounded && (row < 0 || row >= rows || col < 0 || col >= cols))
+            return null;
+        return new int[] { row, col };
+    }
+
+    /**
+     * The tiles that can be seen through part of the screen, so a renderer only visits those.
+     * @param x The left of the part of the screen, for instance the clip.
+     * @param margin How far drawings stick out of their tiles, in pixels.
+     * @return The first row, first column, last row and last column, inclusive. Empty ranges end before they start.
+     */
+    public int[] visibleTiles(int x, int y, int w, int h, int margin) {
+        int left = Math.max(x, viewX) - margin, top = Math.max(y, viewY) - margin;
+        int right = Math.min(x + w, viewX + viewW) + margin, bottom = Math.min(y + h, viewY + viewH) + margin;
+        if (!bounded)
+            return new int[] { rowAt(top), colAt(left), rowAt(bottom - 1), colAt(right - 1) };
+        return new int[] {
+            Math.max(0, rowAt(top)), Math.max(0, colAt(left)),
+            Math.min(rows - 1, rowAt(bottom - 1)), Math.min(cols - 1, colAt(right - 1))
+        };
+    }
+
+    /**
+     * Move the board with the mouse.
+     * @param dx How far to move the board right, in pixels.
+     * @param dy How far to move the board down, in pixels.
+     */
+    public void pan(int dx, int dy) {
+        panX -= dx;
+        panY -= dy;
+        clampPan();
+    }
+
+    /**
+     * Zoom in or out, keeping the point under the mouse where it is.
+     * @param steps How many steps to zoom in, or out if negative.
+     * @return Whether the zoom changed.
+     */
+    public boolean zoom(int screenX, int screenY, int steps) {
+        int next = (int) Math.round(pitch * Math.pow(ZOOM_STEP, steps));
+        if (next == pitch)
+            next += Integer.signum(steps); // small pitches would never move otherwise
+        next = clampPitch(next);
+        if (next == pitch)
+            return false;
+
+        // the grid position under the point, scaled to the new pitch
+        long gridX = screenX - viewX + panX, gridY = screenY - viewY + panY;
+        panX = (int) (gridX * next / pitch) - (screenX - viewX);
+        panY = (int) (gridY * next / pitch) - (screenY - viewY);
+        pitch = next;
+        clampPan();
+        return true;
+    }
+
+    private static int clampPitch(int pitch) {
+        return Math.max(MIN_PITCH, Math.min(MAX_PITCH, pitch));
+    }
+
+    // keep the board filling the view where it is big enough to
+    private void clampPan() {
+        if (!bounded)
+            return;
+        panX = Math.max(0, Math.min(panX, cols * pitch + getGap() - viewW));
+        panY = Math.max(0, Math.min(panY, rows * pitch + getGap() - viewH));
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reveals a cave of 0 hints and its border on every core, for boards where one click can open millions of tiles.
+ * <p>
+ * The cave is searched breadth first. Each task works through its own queue of cave tiles, and once the queue is long
+ * enough it forks half of it off as a new task, which idle threads of the {@link ForkJoinPool} steal. Tiles are claimed
+ * by setting their bit in an atomic visited bitset, so every tile is handled by exactly one task, and only that task
+ * writes to it. Small caves never get long enough queues to fork, and are revealed on the calling thread.
+ * <p>
+ * The tiles revealed are the same as the serial reveal in {@link BoardManager#stepOnTile(int, int)}, only found in a
+ * different order.
+ * <p>
+ * Since {@link BitBoard.Cave} fills 64 tiles a step, the serial reveal is faster than this one with 1 or 8 threads, so
+ * {@link BoardManager#parallelRevealSize} only turns this on when asked to.
+ * <p>
+ * Usage: {@code java CaveReveal [size] [bombs] [clicks]} checks the parallel reveal against the serial one on a sparse
+ * board, and times both.
+ */
+public class CaveReveal {
+
+    private static final int SPLIT_SIZE = 4096; // a task forks off half its queue once it holds twice this many tiles
+
+    private final PackedBoard board;
+    private final int w, h;
+    private final AtomicLongArray visited;
+    private final ConcurrentLinkedQueue<int[]> revealed = new ConcurrentLinkedQueue<>(); // what each task revealed
+
+    private CaveReveal(PackedBoard board) {
+        this.board = board;
+        this.w = board.w;
+        this.h = board.h;
+        this.visited = new AtomicLongArray((int) (((long) w * h + 63) >>> 6));
+    }
+
+    /**
+     * Discover every tile of the cave of 0 hints around a tile, and the tiles around the cave, on the common
+     * {@link ForkJoinPool}. Flags are left as they are.
+     * @param board The board to reveal tiles of.
+     * @param startX The x index of a tile with a hint of 0.
+     * @param startY The y index of the tile.
+     * @return The packed indices of the tiles that were hidden, and are discovered now, in no particular order.
+     */
+    public static int[] reveal(PackedBoard board, int startX, int startY) {
+        CaveReveal reveal = new CaveReveal(board);
+        int start = board.index(startX, startY);
+        reveal.claim(start);
+        if (!board.isDiscovered(start)) {
+            board.setDiscovered(start, true);
+            reveal.revealed.add(new int[] { start });
+        }
+        ForkJoinPool.commonPool().invoke(reveal.new Task(new int[] { start }, 1));
+
+        int count = 0;
+        for (int[] tiles : reveal.revealed)
+            count += tiles.length;
+        int[] result = new int[count];
+        int k = 0;
+        for (int[] tiles : reveal.revealed) {
+            System.arraycopy(tiles, 0, result, k, tiles.length);
+            k += tiles.length;
+        }
+        return result;
+    }
+
+    // set the visited bit of a tile, and return whether this call was the one to set it
+    private boolean claim(int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        while (true) {
+            long old = visited.get(word);
+            if ((old & bit) != 0)
+                return false;
+            if (visited.compareAndSet(word, old, old | bit))
+                return true;
+        }
+    }
+
+    // works through a queue of cave tiles, which are claimed already, claiming and revealing their neighbors
+    @SuppressWarnings("serial") // never serialized
+    private final class Task extends RecursiveAction {
+        private int[] queue;
+        private int head, tail;
+
+        Task(int[] queue, int size) {
+            this.queue = queue;
+            this.tail = size;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayList<Task> forked = new ArrayList<>();
+            int[] found = new int[64];
+            int count = 0;
+            while (head < tail) {
+                if (tail - head >= SPLIT_SIZE * 2) {
+                    int half = (tail - head) / 2;
+                    Task task = new Task(Arrays.copyOfRange(queue, tail - half, tail), half);
+                    tail -= half;
+                    task.fork();
+                    forked.add(task);
+                }
+
+                int index = queue[head++];
+                int x = index / h;
+                int y = index - x * h;
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++) {
+                    for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, h - 1); j++) {
+                        int neighbor = i * h + j;
+                        if (!claim(neighbor))
+                            continue;
+
+                        if (!board.isDiscovered(neighbor)) {
+                            board.setDiscovered(neighbor, true);
+                            if (count == found.length)
+                                found = Arrays.copyOf(found, count * 2);
+                            found[count++] = neighbor;
+                        }
+                        // the cave goes on through 0 hints, and stops at the border
+                        if (board.getHint(neighbor) == 0)
+                            push(neighbor);
+                    }
+                }
+            }
+
+            revealed.add(Arrays.copyOf(found, count));
+            for (Task task : forked)
+                task.join();
+        }
+
+        private void push(int index) {
+            if (tail == queue.length) {
+                // reuse the space of the tiles already handled, or grow
+                int[] target = head > queue.length / 2 ? queue : new int[queue.length * 2];
+                System.arraycopy(queue, head, target, 0, tail - head);
+                queue = target;
+                tail -= head;
+                head = 0;
+            }
+            queue[tail++] = index;
+        }
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int bombs = args.length > 1 ? Integer.parseInt(args[1]) : size * size / 100;
+        int clicks = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        SplittableRandom random = new SplittableRandom(1);
+        for (int c = 0; c < clicks; c++) {
+            long seed = random.nextLong();
+            int x = random.nextInt(size), y = random.nextInt(size);
+
+            BoardManager serial = new BoardManager(size, size, bombs, 0, 0, seed);
+            serial.parallelRevealSize = Integer.MAX_VALUE;
+            serial.clickedYet = true;
+            serial.createBoard(x, y);
+            BoardManager parallel = new BoardManager(size, size, bombs, 0, 0, seed);
+            parallel.parallelRevealSize = 0;
+            parallel.clickedYet = true;
+            parallel.createBoard(x, y);
+
+            long start = System.nanoTime();
+            serial.stepOnTile(x, y);
+            double serialMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            parallel.stepOnTile(x, y);
+            double parallelMillis = (System.nanoTime() - start) / 1e6;
+
+            boolean same = serial.discoveredCount == parallel.discoveredCount;
+            for (int i = 0; i < serial.board.size() && same; i++)
+                same = serial.board.getRaw(i) == parallel.board.getRaw(i);
+            System.out.printf("%dx%d, %d discovered: serial %.1f ms, parallel %.1f ms on %d threads, %s%n", size, size,
+                    serial.discoveredCount, serialMillis, parallelMillis, ForkJoinPool.commonPool().getParallelism(),
+                    same ? "same tiles" : "DIFFERENT TILES");
+        }
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * A board with no edges, for endless mode. The world is split into {@link #CHUNK} x {@link #CHUNK} chunks, each a
+ * {@link PackedBoard}, made only when something looks at or reveals one of its tiles.
+ * <p>
+ * Whether a tile is a bomb only depends on the seed and the tile, through a hash, so a chunk and the hints along its
+ * edges can be made without making its neighbors. Chunks are kept in an LRU cache. Chunks the player has changed are
+ * written to a swap directory when they fall out of it and read back when they are needed again, the rest are just made
+ * again, so memory stays bounded however far the player goes. Each world swaps into its own directory, named after its
+ * seed, which is emptied when a board is made, so chunks left behind by a session that never closed its board are not
+ * taken for this one's.
+ * <p>
+ * Coordinates are the same as {@link BoardManager}'s, x down and y across, but can be any int.
+ * Endless boards only have bombs, since a rocket would clear an endless row.
+ * <p>
+ * {@link EndlessGame} plays one. Usage: {@code java EndlessBoard [steps] [density] [chunks in memory]} walks away from
+ * the start revealing tiles, and prints how the chunk cache holds up.
+ */
+public class EndlessBoard {
+
+    public static final int CHUNK_SHIFT = 5;
+    public static final int CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK - 1;
+    public static final int MAX_REVEAL = 1 << 20; // most tiles one step can reveal, in case a cave goes on and on
+
+    // a chunk of the world, and whether it differs from what generate would make
+    private static final class Chunk {
+        final PackedBoard tiles = new PackedBoard(CHUNK, CHUNK);
+        boolean changed;
+    }
+
+    public final long seed;
+    public final double density; // the chance of each tile being a bomb
+    public int flagCount = 0, discoveredCount = 0;
+    public boolean gameOver = false, clickedYet = false;
+
+    public long chunksGenerated = 0, chunksLoaded = 0, chunksSaved = 0, chunksEvicted = 0;
+
+    private final long threshold; // a tile is a bomb if its hash is below this
+    private int[] firstClick; // no bombs this close to it
+    private final Path swapDir;
+    private final LinkedHashMap<Long, Chunk> chunks;
+    private final ArrayList<BoardManager.Listener> listeners = new ArrayList<>();
+    private long[] queue = new long[256]; // scratch space for reveals
+
+    /**
+     * @param seed The seed of the world.
+     * @param density The chance of each tile being a bomb.
+     * @param maxChunks How many chunks to keep in memory.
+     * @param swapDir Where to write chunks that fall out of memory, in a directory for the seed. It is created if it
+     *                does not exist, and chunks already in it are deleted.
+     */
+    public EndlessBoard(long seed, double density, int maxChunks, Path swapDir) throws IOException {
+        if (density < 0 || density >= 1)
+            throw new IllegalArgumentException("density must be in [0, 1), not " + density);
+        this.seed = seed;
+        this.density = density;
+        this.threshold = (long) (density * (1L << 53));
+        this.swapDir = Files.createDirectories(swapDir.resolve("world-" + Long.toHexString(seed)));
+        deleteSwap();
+        chunks = new LinkedHashMap<>(maxChunks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= maxChunks)
+                    return false;
+                evict(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public void addListener(BoardManager.Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BoardManager.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return Whether a tile is a bomb. Only depends on the seed, the tile, and the first click.
+     */
+    public boolean isBomb(int x, int y) {
+        if (firstClick != null && Math.abs(x - firstClick[0]) <= 1 && Math.abs(y - firstClick[1]) <= 1)
+            return false;
+        // the same mixing SplittableRandom does, over the seed and the tile
+        long z = seed + x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = z ^ (z >>> 33);
+        return (z >>> 11) < threshold;
+    }
+
+    public int getTile(int x, int y) {
+        return chunkOf(x, y).tiles.getTile(local(x, y));
+    }
+
+    public int getHint(int x, int y) {
+        return chunkOf(x, y).tiles.getHint(local(x, y));
+    }
+
+    public boolean isDiscovered(int x, int y) {
+        return chunkOf(x, y).tiles.isDiscovered(local(x, y));
+    }
+
+    public int getFlag(int x, int y) {
+        return chunkOf(x, y).tiles.getFlag(local(x, y));
+    }
+
+    /**
+     * Make sure every chunk touching an area is in memory, like before drawing it.
+     */
+    public void view(int minX, int minY, int maxX, int maxY) {
+        for (int cx = minX >> CHUNK_SHIFT; cx <= maxX >> CHUNK_SHIFT; cx++)
+            for (int cy = minY >> CHUNK_SHIFT; cy <= maxY >> CHUNK_SHIFT; cy++)
+                chunk(cx, cy);
+    }
+
+    /**
+     * Step on a tile. A tile with no bombs around it opens the cave it is in, which can cross into any chunk.
+     * @return What was stepped on, {@link BoardManager#STEPPED_ON_BOMB} or {@link BoardManager#STEPPED_ON_EMPTY}.
+     */
+    public int stepOnTile(int x, int y) {
+        if (!clickedYet) {
+            // chunks made so far have no state yet, so make them again around the safe first click
+            clickedYet = true;
+            firstClick = new int[] { x, y };
+            chunks.clear();
+        }
+
+        if (gameOver || getFlag(x, y) == 1)
+            return BoardManager.STEPPED_ON_EMPTY;
+
+        if (getTile(x, y) == BoardManager.BOARD_BOMB) {
+            gameOver = true;
+            for (BoardManager.Listener listener : listeners)
+                listener.gameEnded(false);
+            return BoardManager.STEPPED_ON_BOMB;
+        }
+
+        // breadth first over the cave, discovering each tile as it is queued
+        if (!discover(x, y))
+            return BoardManager.STEPPED_ON_EMPTY;
+        int head = 0, tail = 0, revealed = 1;
+        queue[tail++] = pack(x, y);
+        while (head < tail) {
+            long tile = queue[head++];
+            int tx = (int) (tile >> 32), ty = (int) tile;
+            if (getHint(tx, ty) != 0)
+                continue;
+            for (int i = tx - 1; i <= tx + 1; i++) {
+                for (int j = ty - 1; j <= ty + 1; j++) {
+                    if (revealed >= MAX_REVEAL || getFlag(i, j) != 0 || !discover(i, j))
+                        continue;
+                    revealed++;
+                    if (tail == queue.length)
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    queue[tail++] = pack(i, j);
+                }
+            }
+        }
+        return BoardManager.STEPPED_ON_EMPTY;
+    }
+
+    public void flagTile(int x, int y) {
+        if (!clickedYet || gameOver || isDiscovered(x, y))
+            return;
+        Chunk chunk = chunkOf(x, y);
+        int index = local(x, y);
+        int flag = chunk.tiles.getFlag(index) == 0 ? 1 : 0;
+        chunk.tiles.setFlag(index, flag);
+        chunk.changed = true;
+        flagCount += flag == 1 ? 1 : -1;
+        for (BoardManager.Listener listener : listeners)
+            listener.flagChanged(x, y);
+    }
+
+    // discover a tile, and tell the listeners. returns false if it was discovered already
+    private boolean discover(int x, int y) {
+        Chunk chunk = chunkOf(x, y);
+        int index = local(x, y);
+        if (chunk.tiles.isDiscovered(index))
+            return false;
+        chunk.tiles.setDiscovered(index, true);
+        chunk.changed = true;
+        discoveredCount++;
+        for (BoardManager.Listener listener : listeners)
+            listener.tileRevealed(x, y);
+        return true;
+    }
+
+    /**
+     * @return How many chunks are in memory.
+     */
+    public int chunksInMemory() {
+        return chunks.size();
+    }
+
+    /**
+     * Delete every chunk written to the swap directory, and the directory of the seed. The board should not be used
+     * after.
+     */
+    public void close() throws IOException {
+        chunks.clear();
+        deleteSwap();
+        Files.deleteIfExists(swapDir);
+    }
+
+    private void deleteSwap() throws IOException {
+        try (Stream<Path> files = Files.list(swapDir)) {
+            for (Path file : (Iterable<Path>) files::iterator)
+                if (file.getFileName().toString().endsWith(".chunk"))
+                    Files.delete(file);
+        }
+    }
+
+    private Chunk chunkOf(int x, int y) {
+        return chunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+    }
+
+    private static int local(int x, int y) {
+        return (x & CHUNK_MASK) * CHUNK + (y & CHUNK_MASK);
+    }
+
+    private static long pack(int a, int b) {
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    private Chunk chunk(int cx, int cy) {
+        long key = pack(cx, cy);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = load(cx, cy);
+            if (chunk == null)
+                chunk = generate(cx, cy);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    // make the bombs and hints of a chunk from the seed
+    private Chunk generate(int cx, int cy) {
+        Chunk chunk = new Chunk();
+        int x0 = cx << CHUNK_SHIFT, y0 = cy << CHUNK_SHIFT;
+
+        // the bombs of the chunk and a one tile border around it, so the edge hints are right
+        boolean[] bombs = new boolean[(CHUNK + 2) * (CHUNK + 2)];
+        for (int i = 0; i < CHUNK + 2; i++)
+            for (int j = 0; j < CHUNK + 2; j++)
+                bombs[i * (CHUNK + 2) + j] = isBomb(x0 + i - 1, y0 + j - 1);
+
+        for (int i = 0; i < CHUNK; i++) {
+            for (int j = 0; j < CHUNK; j++) {
+                int index = i * CHUNK + j;
+                if (bombs[(i + 1) * (CHUNK + 2) + j + 1]) {
+                    chunk.tiles.setTile(index, BoardManager.BOARD_BOMB);
+                    continue;
+                }
+                int hint = 0;
+                for (int di = 0; di <= 2; di++)
+                    for (int dj = 0; dj <= 2; dj++)
+                        if (bombs[(i + di) * (CHUNK + 2) + j + dj])
+                            hint++;
+                chunk.tiles.setHint(index, hint);
+            }
+        }
+        chunksGenerated++;
+        return chunk;
+    }
+
+    private Path file(int cx, int cy) {
+        return swapDir.resolve(cx + "_" + cy + ".chunk");
+    }
+
+    // read a chunk back from the swap directory, or return null if it was never written
+    private Chunk load(int cx, int cy) {
+        Path file = file(cx, cy);
+        if (!Files.exists(file))
+            return null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            Chunk chunk = new Chunk();
+            for (int i = 0; i < CHUNK * CHUNK; i++)
+                chunk.tiles.setRaw(i, buffer.getShort());
+            chunksLoaded++;
+            return chunk;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read chunk " + cx + ", " + cy, e);
+        }
+    }
+
+    // chunks the player has not touched can just be made again, the rest are written out
+    private void evict(long key, Chunk chunk) {
+        chunksEvicted++;
+        if (!chunk.changed)
+            return;
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK * CHUNK * 2);
+        for (int i = 0; i < CHUNK * CHUNK; i++)
+            buffer.putShort(chunk.tiles.getRaw(i));
+        int cx = (int) (key >> 32), cy = (int) key;
+        try {
+            Files.write(file(cx, cy), buffer.array());
+            chunk.changed = false;
+            chunksSaved++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write chunk " + cx + ", " + cy, e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.15;
+        int maxChunks = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        Path swapDir = Files.createTempDirectory("endless");
+        EndlessBoard board = new EndlessBoard(1, density, maxChunks, swapDir);
+        SplittableRandom random = new SplittableRandom(1);
+
+        // wander off in a random walk, stepping on tiles that are not bombs
+        int x = 0, y = 0;
+        long start = System.nanoTime();
+        board.stepOnTile(x, y);
+        for (int i = 0; i < steps; i++) {
+            x += random.nextInt(-6, 7);
+            y += random.nextInt(-6, 7) + 2;
+            if (!board.isBomb(x, y))
+                board.stepOnTile(x, y);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // go back to the start, which was written out long ago
+        boolean kept = board.isDiscovered(0, 0);
+
+        System.out.printf("%d steps in %.2f s, ended %d tiles from the start, %d tiles discovered%n", steps, seconds,
+                Math.abs(x) + Math.abs(y), board.discoveredCount);
+        System.out.printf("chunks: %d in memory, %d generated, %d evicted, %d written, %d read back%n",
+                board.chunksInMemory(), board.chunksGenerated, board.chunksEvicted, board.chunksSaved,
+                board.chunksLoaded);
+        System.out.println("start still discovered after being read back: " + kept);
+        board.close();
+        Files.delete(swapDir);
+    }
+}
@@ -0,0 +1,272 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import javax.swing.ImageIcon;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Endless mode: a board with no edges, see {@link EndlessBoard}, that goes on however far it is dragged. There is no
+ * winning, only seeing how much can be cleared before stepping on a bomb.
+ * <p>
+ * Only the tiles in view are drawn, and looking at them is what makes their chunks. Press E in {@link Game} to open it,
+ * or run {@code java EndlessGame [seed]}.
+ */
+@SuppressWarnings("serial") // never serialized
+public class EndlessGame extends JPanel {
+
+    public static final double DENSITY = 0.15;
+    public static final int MAX_CHUNKS = 1024; // 2 KB each, and enough for the view zoomed all the way out
+    private static final Path SWAP_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "mineswiffer-endless");
+    private static final int START_PITCH = 24;
+
+    // board layout, in pixels, the same as Game's
+    private final int boardX = 10, boardY = 120, boardW = 600, boardH = 600;
+    private final Camera camera = new Camera(boardX, boardY, boardW, boardH);
+
+    private EndlessBoard board;
+    private final SplittableRandom seeds;
+    private int[] dragLoc; // where the mouse was dragging the board from, if it is
+    private boolean dragged; // the mouse moved far enough since it was pressed that letting go is not a click
+
+    private final SpriteAtlas spriteAtlas; // drawn with Game's colors and fonts
+
+    public EndlessGame(long seed) {
+        seeds = new SplittableRandom(seed);
+        Image bombImage = new ImageIcon(Game.class.getResource("bomb.png")).getImage();
+        Image flagImage = new ImageIcon(Game.class.getResource("flag.png")).getImage();
+        Image radarImage = new ImageIcon(Game.class.getResource("radar.png")).getImage();
+        Image rocketImage = new ImageIcon(Game.class.getResource("rocket.png")).getImage();
+        spriteAtlas = new SpriteAtlas(bombImage, flagImage, radarImage, rocketImage, Game.HINT_COLORS, Game.HINT_FONT);
+
+        setFocusable(true);
+        setBackground(Color.WHITE);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragLoc = new int[] { e.getX(), e.getY() };
+                dragged = false;
+                requestFocusInWindow();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragLoc == null)
+                    return;
+                int dx = e.getX() - dragLoc[0], dy = e.getY() - dragLoc[1];
+                // a little wobble while clicking is not a drag
+                if (!dragged && Math.abs(dx) + Math.abs(dy) < 5)
+                    return;
+                dragged = true;
+                dragLoc = new int[] { e.getX(), e.getY() };
+                camera.pan(dx, dy);
+                repaint();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragLoc = null;
+                if (!dragged)
+                    click(e);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (camera.zoom(e.getX(), e.getY(), -e.getWheelRotation()))
+                    repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int c = e.getKeyCode();
+                if (c == KeyEvent.VK_LEFT)
+                    camera.pan(Game.PAN_STEP, 0);
+                else if (c == KeyEvent.VK_RIGHT)
+                    camera.pan(-Game.PAN_STEP, 0);
+                else if (c == KeyEvent.VK_UP)
+                    camera.pan(0, Game.PAN_STEP);
+                else if (c == KeyEvent.VK_DOWN)
+                    camera.pan(0, -Game.PAN_STEP);
+                else if (c == KeyEvent.VK_R)
+                    newWorld();
+                repaint();
+            }
+        });
+
+        newWorld();
+    }
+
+    // start over on a new seed, deleting what the old world swapped out
+    private void newWorld() {
+        closeBoard();
+        try {
+            board = new EndlessBoard(seeds.nextLong(), DENSITY, MAX_CHUNKS, SWAP_DIR);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not make the swap directory", e);
+        }
+        camera.endless(START_PITCH);
+    }
+
+    private void closeBoard() {
+        if (board == null)
+            return;
+        try {
+            board.close();
+        } catch (IOException e) {
+            System.out.println("Could not delete the swapped chunks: " + e.getMessage());
+        }
+        board = null;
+    }
+
+    // step on a tile with the left button, flag it with the right button or control
+    private void click(MouseEvent e) {
+        int[] tile = camera.tileAt(e.getX(), e.getY());
+        if (tile == null)
+            return;
+        boolean rmb = e.getButton() == MouseEvent.BUTTON3 || e.isControlDown();
+        if (rmb)
+            board.flagTile(tile[0], tile[1]);
+        else
+            board.stepOnTile(tile[0], tile[1]);
+        repaint();
+    }
+
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        paintGUI(g2);
+
+        g2.setColor(Color.GRAY);
+        g2.fillRoundRect(boardX, boardY, boardW, boardH, 10, 10);
+        Shape clip = g2.getClip();
+        g2.clipRect(boardX, boardY, boardW, boardH);
+        paintTiles(g2);
+        g2.setClip(clip);
+        g2.setColor(Color.BLACK);
+        g2.drawRoundRect(boardX, boardY, boardW, boardH, 10, 10);
+    }
+
+    // the tiles in view, which makes or reads back their chunks
+    private void paintTiles(Graphics2D g2) {
+        int tileSize = camera.getTileSize();
+        boolean details = tileSize >= 8; // smaller tiles are plain blocks
+        if (details)
+            spriteAtlas.update(tileSize, tileSize);
+
+        Rectangle bounds = g2.getClipBounds();
+        int[] range = camera.visibleTiles(bounds.x, bounds.y, bounds.width, bounds.height, 0);
+        board.view(range[0], range[1], range[2], range[3]);
+        for (int x = range[0]; x <= range[2]; x++) {
+            for (int y = range[1]; y <= range[3]; y++) {
+                int tileX = camera.tileX(y), tileY = camera.tileY(x);
+                boolean discovered = board.isDiscovered(x, y);
+                boolean bomb = board.getTile(x, y) == BoardManager.BOARD_BOMB;
+                g2.setColor(discovered ? Game.DISCOVERED_COLOR : Game.UNDISCOVERED_COLOR);
+                g2.fillRect(tileX, tileY, tileSize, tileSize);
+
+                if (board.getFlag(x, y) == 1) {
+                    if (details)
+                        spriteAtlas.drawTile(g2, SpriteAtlas.FLAG, tileX, tileY);
+                    else
+                        fillBlock(g2, Color.RED, tileX, tileY, tileSize);
+                } else if (bomb && (discovered || board.gameOver)) {
+                    // every bomb in view shows once the game is over
+                    if (details)
+                        spriteAtlas.drawTile(g2, SpriteAtlas.BOMB, tileX, tileY);
+                    else
+                        fillBlock(g2, Color.BLACK, tileX, tileY, tileSize);
+                } else if (discovered && board.getHint(x, y) > 0) {
+                    int hint = board.getHint(x, y);
+                    if (details)
+                        spriteAtlas.drawHint(g2, hint, false, tileX, tileY);
+                    else
+                        fillBlock(g2, Game.HINT_COLORS[hint - 1].brighter(), tileX, tileY, tileSize);
+                }
+            }
+        }
+    }
+
+    private static void fillBlock(Graphics2D g2, Color color, int x, int y, int size) {
+        g2.setColor(color);
+        g2.fillRect(x, y, size, size);
+    }
+
+    private void paintGUI(Graphics2D g2) {
+        int guiY = boardY - 110;
+        int guiH = 95;
+        g2.setColor(Color.GRAY);
+        g2.fillRoundRect(boardX, guiY, boardW, guiH, 10, 10);
+        g2.setColor(Color.BLACK);
+        g2.drawRoundRect(boardX, guiY, boardW, guiH, 10, 10);
+
+        g2.setFont(Game.HINT_FONT);
+        g2.drawString("Flagged: " + board.flagCount, boardX + 10, guiY + 20);
+
+        g2.setFont(Game.MAIN_FONT);
+        String txt = board.gameOver ? "Game Over :( - Press r to restart"
+                : "Endless - " + board.discoveredCount + " tiles cleared";
+        int len = g2.getFontMetrics().stringWidth(txt);
+        g2.drawString(txt, boardX + boardW - len - 10, guiY + 20);
+
+        g2.setFont(Game.SMALL_FONT);
+        String[] tutorial = {
+            "LMB to clear a tile. Scroll to zoom, drag or use the arrows to go anywhere",
+            "RMB or LMB + Control to flag a tile",
+            "The board never ends. If you click a bomb, you lose.",
+            String.format("Chunks: %d in memory, %d made, %d written to disk, %d read back", board.chunksInMemory(),
+                    board.chunksGenerated, board.chunksSaved, board.chunksLoaded),
+        };
+        for (int i = 0; i < tutorial.length; i++) {
+            g2.drawString(tutorial[i], boardX + 10, guiY + 40 + 10 * i);
+        }
+    }
+
+    // the world is only kept while it is on screen
+    @Override
+    public void removeNotify() {
+        closeBoard();
+        super.removeNotify();
+    }
+
+    public Dimension getPreferredSize() {
+        return new Dimension(Game.PREF_W, Game.PREF_H);
+    }
+
+    public static void createAndShowGUI(long seed) {
+        JFrame frame = new JFrame("Mineswiffer - Endless");
+        frame.getContentPane().add(new EndlessGame(seed));
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.setVisible(true);
+    }
+
+    // usage: java EndlessGame [seed]
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        SwingUtilities.invokeLater(() -> createAndShowGUI(seed));
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tries every way the bombs could sit along the frontier, and keeps the tiles that are the same in all of them.
+ * <p>
+ * The frontier is split into components, groups of hidden tiles linked by the constraints they share, since a
+ * component can be enumerated without looking at the others. Each component is enumerated by backtracking over its
+ * tiles, pruning as soon as a constraint is overfull or can no longer be filled. Components that are too big, or that
+ * blow the search budget, are skipped so a solve always stays fast.
+ */
+public class EnumerationStrategy implements SolverStrategy {
+
+    private static final int MAX_COMPONENT_CELLS = 64;
+    private static final long MAX_NODES = 200_000; // per component
+
+    // the component being enumerated
+    private int[] cells = new int[0]; // its tiles, in search order
+    private int[][] cellConstraints = new int[0][]; // constraints touching each tile, by position in cells
+    private int[] target, placed, open; // per constraint: bombs needed, bombs placed so far, tiles not decided yet
+    private boolean[] assignment = new boolean[0];
+    private long[] mineCounts = new long[0];
+    private long solutions, nodes;
+    private int cellCount, minesLeft;
+
+    // scratch space, kept between solves
+    private int[] parent = new int[0], position = new int[0];
+
+    @Override
+    public String getName() {
+        return "enumerate";
+    }
+
+    @Override
+    public void apply(Solver solver) {
+        List<Solver.Constraint> constraints = solver.getConstraints();
+        int size = solver.getWidth() * solver.getHeight();
+        minesLeft = solver.getMinesLeft();
+
+        // union the tiles of each constraint into components
+        if (parent.length < size) {
+            parent = new int[size];
+            position = new int[size];
+        }
+        for (Solver.Constraint constraint : constraints) {
+            for (int cell : constraint.cells)
+                parent[cell] = cell;
+        }
+        for (Solver.Constraint constraint : constraints) {
+            for (int i = 1; i < constraint.cells.length; i++)
+                union(constraint.cells[0], constraint.cells[i]);
+        }
+
+        // group the constraints by the root of their component
+        int count = constraints.size();
+        int[] order = new int[count];
+        Integer[] boxed = new Integer[count];
+        for (int c = 0; c < count; c++)
+            boxed[c] = c;
+        Arrays.sort(boxed, (a, b) -> Integer.compare(find(constraints.get(a).cells[0]), find(constraints.get(b).cells[0])));
+        for (int c = 0; c < count; c++)
+            order[c] = boxed[c];
+
+        int start = 0;
+        while (start < count) {
+            int root = find(constraints.get(order[start]).cells[0]);
+            int end = start;
+            while (end < count && find(constraints.get(order[end]).cells[0]) == root)
+                end++;
+            enumerate(solver, constraints, order, start, end);
+            start = end;
+        }
+    }
+
+    // enumerate one component, made of the constraints order[start, end)
+    private void enumerate(Solver solver, List<Solver.Constraint> constraints, int[] order, int start, int end) {
+        int constraintCount = end - start;
+
+        // collect its tiles, in the order the constraints reach them, so neighbors are decided close together
+        cellCount = 0;
+        for (int k = start; k < end; k++) {
+            for (int cell : constraints.get(order[k]).cells)
+                position[cell] = -1;
+        }
+        for (int k = start; k < end; k++) {
+            for (int cell : constraints.get(order[k]).cells) {
+                if (position[cell] != -1)
+                    continue;
+                if (cellCount == MAX_COMPONENT_CELLS)
+                    return;
+                if (cells.length == cellCount)
+                    cells = Arrays.copyOf(cells, Math.max(16, cellCount * 2));
+                position[cell] = cellCount;
+                cells[cellCount++] = cell;
+            }
+        }
+
+        target = new int[constraintCount];
+        placed = new int[constraintCount];
+        open = new int[constraintCount];
+        int[] touching = new int[cellCount];
+        for (int k = 0; k < constraintCount; k++) {
+            Solver.Constraint constraint = constraints.get(order[start + k]);
+            target[k] = constraint.mines;
+            open[k] = constraint.cells.length;
+            for (int cell : constraint.cells)
+                touching[position[cell]]++;
+        }
+        cellConstraints = new int[cellCount][];
+        for (int i = 0; i < cellCount; i++)
+            cellConstraints[i] = new int[touching[i]];
+        Arrays.fill(touching, 0);
+        for (int k = 0; k < constraintCount; k++) {
+            for (int cell : constraints.get(order[start + k]).cells) {
+                int i = position[cell];
+                cellConstraints[i][touching[i]++] = k;
+            }
+        }
+
+        if (assignment.length < cellCount) {
+            assignment = new boolean[cellCount];
+            mineCounts = new long[cellCount];
+        }
+        Arrays.fill(mineCounts, 0, cellCount, 0);
+        solutions = 0;
+        nodes = 0;
+
+        if (!search(0, 0) || solutions == 0)
+            return;
+
+        for (int i = 0; i < cellCount; i++) {
+            if (mineCounts[i] == 0)
+                solver.markSafe(cells[i]);
+            else if (mineCounts[i] == solutions)
+                solver.markMine(cells[i]);
+        }
+    }
+
+    // decide tile i and everything after it. returns false if the node budget ran out
+    private boolean search(int i, int mines) {
+        if (++nodes > MAX_NODES)
+            return false;
+
+        if (i == cellCount) {
+            solutions++;
+            for (int c = 0; c < cellCount; c++)
+                if (assignment[c])
+                    mineCounts[c]++;
+            return true;
+        }
+
+        for (int value = 0; value <= 1; value++) {
+            boolean mine = value == 1;
+            if (mine && mines == minesLeft)
+                continue;
+
+            // place it, and check that every constraint it touches can still be met
+            boolean fits = true;
+            for (int k : cellConstraints[i]) {
+                open[k]--;
+                if (mine)
+                    placed[k]++;
+                if (placed[k] > target[k] || placed[k] + open[k] < target[k])
+                    fits = false;
+            }
+
+            assignment[i] = mine;
+            boolean ok = !fits || search(i + 1, mines + value);
+
+            for (int k : cellConstraints[i]) {
+                open[k]++;
+                if (mine)
+                    placed[k]--;
+            }
+            if (!ok)
+                return false;
+        }
+        return true;
+    }
+
+    private int find(int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a), rootB = find(b);
+        if (rootA != rootB)
+            parent[rootA] = rootB;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Iterative flood fill over a board, used to find caves of identical hints.
+ * Tiles are addressed by packed indices ({@code x * h + y}), and the stack, visited bitset and result buffer
+ * are kept between calls, so filling the same board over and over does not allocate anything per tile.
+ */
+public class FloodFill {
+
+    private final int w, h;
+    private final long[] visited;
+    private int[] stack = new int[64];
+    private int[] result = new int[64];
+    private int size = 0;
+
+    /**
+     * Create a flood fill engine for boards of a given size.
+     * @param w The number of rows of the board.
+     * @param h The number of columns of the board.
+     */
+    public FloodFill(int w, int h) {
+        this.w = w;
+        this.h = h;
+        this.visited = new long[(int) (((long) w * h + 63) >>> 6)];
+    }
+
+    /**
+     * Find every tile that is connected (horizontally, vertically or diagonally) to the start tile
+     * through tiles with the given hint value.
+     * The results are kept in this engine until the next call, see {@link #result()} and {@link #size()}.
+     * @param board The board, whose bomb hints are searched.
+     * @param startX The x index to start.
+     * @param startY The y index to start.
+     * @param value The hint value to find copies of.
+     * @return The number of tiles in the cave, 0 if the start tile does not match.
+     */
+    public int fill(PackedBoard board, int startX, int startY, int value) {
+        clear();
+
+        if (startX < 0 || startX >= w || startY < 0 || startY >= h || board.getHint(startX * h + startY) != value)
+            return 0;
+
+        int top = 0;
+        int start = startX * h + startY;
+        mark(start);
+        stack[top++] = start;
+
+        while (top > 0) {
+            int index = stack[--top];
+            add(index);
+
+            int x = index / h;
+            int y = index - x * h;
+
+            // check horizontally, vertically, and diagonally
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++) {
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, h - 1); j++) {
+                    int neighbor = i * h + j;
+                    if (isVisited(neighbor) || board.getHint(neighbor) != value)
+                        continue;
+
+                    mark(neighbor);
+                    if (top == stack.length)
+                        stack = grow(stack);
+                    stack[top++] = neighbor;
+                }
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * The packed indices found by the last fill. Only the first {@link #size()} entries are valid.
+     * The array is reused by the next fill, so copy it if it needs to be kept.
+     * @return The backing result buffer.
+     */
+    public int[] result() {
+        return result;
+    }
+
+    /**
+     * @return The number of tiles found by the last fill.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The packed index of the tile.
+     * @return Whether the last fill reached this tile.
+     */
+    public boolean isVisited(int index) {
+        return (visited[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // only the tiles in the last result were marked, so unmark just those instead of the whole bitset
+    private void clear() {
+        for (int i = 0; i < size; i++) {
+            int index = result[i];
+            visited[index >>> 6] = 0;
+        }
+        size = 0;
+    }
+
+    private void mark(int index) {
+        visited[index >>> 6] |= 1L << index;
+    }
+
+    private void add(int index) {
+        if (size == result.length)
+            result = grow(result);
+        result[size++] = index;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] bigger = new int[(int) Math.min((long) array.length * 2, Integer.MAX_VALUE - 8)];
+        System.arraycopy(array, 0, bigger, 0, array.length);
+        return bigger;
+    }
+}
@@ -0,0 +1,186 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Draws the fog over undiscovered tiles from cached sprites, instead of scaling the fog image 15 times per tile per frame.
+ * <p>
+ * Every tile uses one of a few fog variants. Each variant is pre-rendered (lazily) at a fixed number of animation
+ * frames, so a resting tile costs a single unscaled blit per frame. Once a tile starts fading its cached frame no
+ * longer matches, so it is drawn circle by circle from the pre-scaled fog circle until it has faded away.
+ * The caches are rebuilt whenever the tile size changes.
+ */
+public class FogRenderer {
+
+    private static final int CIRCLES = 15; // fog circles per tile
+    private static final int VARIANTS = 6; // different fog patterns, spread over the tiles
+    private static final int FRAMES = 32; // cached animation frames per variant
+    private static final int MOUSE_RADIUS = 100; // fog thins out this close to the mouse
+
+    private final Image fogImage;
+
+    // random numbers of every circle of every variant: angle, radius, x scale, x jitter, y scale, y jitter
+    private final double[][] circles = new double[VARIANTS][CIRCLES * 6];
+
+    private int tileSize = -1, circleRadius, spriteX, spriteY, spriteW, spriteH;
+    private BufferedImage circleSprite;
+    private BufferedImage[][] frames;
+    private final int[] center = new int[2];
+
+    public FogRenderer(Image fogImage) {
+        this.fogImage = fogImage;
+
+        Random rand = new Random(0);
+        for (double[] variant : circles) {
+            for (int i = 0; i < variant.length; i++) {
+                variant[i] = rand.nextDouble();
+            }
+        }
+    }
+
+    /**
+     * Paint the fog over every tile in a range that has not finished fading. Tiles whose fog is outside the clip are
+     * skipped.
+     * @param g2 The graphics to paint with. Its composite is left changed.
+     * @param boardManager The board, for the flags.
+     * @param fadeProg How far each tile has faded, out of fogAnimLen.
+     * @param fogAnimProg The fog animation progress, out of fogAnimLen.
+     * @param fogAnimLen The length of the fog animation.
+     * @param tileSize The size of a tile, in pixels.
+     * @param originX Where the fog of the top left tile is drawn from.
+     * @param originY Where the fog of the top left tile is drawn from.
+     * @param tiles The first row, first column, last row and last column to paint, see {@link Camera#visibleTiles}.
+     * @param mouse The mouse x and y, or null if the mouse is not on the board.
+     */
+    public void paint(Graphics2D g2, BoardManager boardManager, int[][] fadeProg, int fogAnimProg, int fogAnimLen,
+            int tileSize, int originX, int originY, int[] tiles, int[] mouse) {
+        if (tileSize != this.tileSize)
+            rebuild(tileSize);
+
+        int frame = frameOf(fogAnimProg, fogAnimLen);
+        for (int i = tiles[0]; i <= tiles[2]; i++) {
+            for (int j = tiles[1]; j <= tiles[3]; j++) {
+                // fully faded tiles have no fog, and flagged tiles hide theirs
+                if (fadeProg[i][j] >= fogAnimLen || boardManager.getFlag(i, j) > 0)
+                    continue;
+
+                int tileX = originX + j * tileSize;
+                int tileY = originY + i * tileSize;
+                int variant = variant(i, j);
+                float transparency = 1 - (float) fadeProg[i][j] / fogAnimLen;
+
+                if (fadeProg[i][j] == 0) {
+                    float alpha = transparency * mouseFactor(tileX + tileSize, tileY + tileSize / 2, mouse);
+                    if (alpha <= 0)
+                        continue;
+                    if (!g2.hitClip(tileX + spriteX, tileY + spriteY, spriteW, spriteH))
+                        continue;
+                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+                    g2.drawImage(frame(variant, frame), tileX + spriteX, tileY + spriteY, null);
+                } else {
+                    double angle = 2 * Math.PI * fogAnimProg / fogAnimLen;
+                    for (int c = 0; c < CIRCLES; c++) {
+                        int[] pos = circleCenter(variant, c, angle, fadeProg[i][j]);
+                        int x = tileX + pos[0];
+                        int y = tileY + pos[1];
+                        float alpha = transparency * mouseFactor(x, y, mouse) / 3;
+                        if (alpha <= 0 || !g2.hitClip(x - circleRadius, y - circleRadius, circleRadius * 2, circleRadius * 2))
+                            continue;
+                        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+                        g2.drawImage(circleSprite, x - circleRadius, y - circleRadius, null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Which cached frame resting fog is drawn with. Resting fog only looks different when this changes.
+     * @param fogAnimProg The fog animation progress, out of fogAnimLen.
+     * @param fogAnimLen The length of the fog animation.
+     * @return The frame index.
+     */
+    public static int frameOf(int fogAnimProg, int fogAnimLen) {
+        return fogAnimProg * FRAMES / fogAnimLen;
+    }
+
+    // spread the variants over the board so neighbors rarely match
+    private static int variant(int i, int j) {
+        return Math.floorMod(i * 31 + j * 17 + (i ^ j), VARIANTS);
+    }
+
+    // fog thins out close to the mouse
+    private static float mouseFactor(int x, int y, int[] mouse) {
+        if (mouse == null)
+            return 1f;
+        int dx = x - mouse[0];
+        int dy = y - mouse[1];
+        double distFactor = 1 - Math.sqrt(dx * dx + dy * dy) / MOUSE_RADIUS;
+        return (float) (1 - Math.max(distFactor, 0));
+    }
+
+    // where a fog circle sits relative to the top left of its tile. the result is only valid until the next call
+    private int[] circleCenter(int variant, int c, double animAngle, int fade) {
+        double[] r = circles[variant];
+        int o = c * 6;
+        int half = tileSize / 2;
+        int quarter = tileSize / 4;
+
+        double angle = animAngle + r[o] * 2 * Math.PI;
+        int radius = (int) (r[o + 1] * half) + 2 + fade + half;
+        int x = half + (int) (Math.cos(angle) * radius * r[o + 2]) + (int) (r[o + 3] * half) - quarter + half;
+        int y = half + (int) (Math.sin(angle) * radius * r[o + 4]) + (int) (r[o + 5] * half) - quarter;
+        center[0] = x;
+        center[1] = y;
+        return center;
+    }
+
+    private BufferedImage frame(int variant, int frame) {
+        if (frames[variant][frame] == null) {
+            BufferedImage sprite = SpriteAtlas.createCompatibleImage(spriteW, spriteH);
+            Graphics2D g2 = sprite.createGraphics();
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f / 3));
+            double angle = 2 * Math.PI * frame / FRAMES;
+            for (int c = 0; c < CIRCLES; c++) {
+                int[] pos = circleCenter(variant, c, angle, 0);
+                g2.drawImage(circleSprite, pos[0] - circleRadius - spriteX, pos[1] - circleRadius - spriteY, null);
+            }
+            g2.dispose();
+            frames[variant][frame] = sprite;
+        }
+        return frames[variant][frame];
+    }
+
+    private void rebuild(int tileSize) {
+        this.tileSize = tileSize;
+        circleRadius = (int) (tileSize * 0.9d);
+
+        circleSprite = SpriteAtlas.createCompatibleImage(circleRadius * 2, circleRadius * 2);
+        Graphics2D g2 = circleSprite.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(fogImage, 0, 0, circleRadius * 2, circleRadius * 2, null);
+        g2.dispose();
+
+        // find the area every resting frame fits in
+        int minX = 0, minY = 0, maxX = 0, maxY = 0;
+        for (int variant = 0; variant < VARIANTS; variant++) {
+            for (int frame = 0; frame < FRAMES; frame++) {
+                for (int c = 0; c < CIRCLES; c++) {
+                    int[] pos = circleCenter(variant, c, 2 * Math.PI * frame / FRAMES, 0);
+                    minX = Math.min(minX, pos[0] - circleRadius);
+                    minY = Math.min(minY, pos[1] - circleRadius);
+                    maxX = Math.max(maxX, pos[0] + circleRadius);
+                    maxY = Math.max(maxY, pos[1] + circleRadius);
+                }
+            }
+        }
+        spriteX = minX;
+        spriteY = minY;
+        spriteW = maxX - minX;
+        spriteH = maxY - minY;
+        frames = new BufferedImage[VARIANTS][FRAMES];
+    }
+}
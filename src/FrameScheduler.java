@@ -0,0 +1,163 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A game loop on its own thread. The game is updated in fixed ticks, however fast frames are shown, and frames are
+ * shown at a target rate, each on a deadline a fixed interval after the last one, so they come out evenly spaced.
+ * <p>
+ * Swing state may only be touched on the event dispatch thread, so every frame the loop hands it the ticks that are due
+ * and the frame itself as one batch, and waits for it to finish. A slow frame pushes back the next one instead of piling
+ * up more, and when ticks fall far behind, the backlog is dropped rather than replayed all at once.
+ * <p>
+ * When nothing is animating, the loop parks until {@link #wake()} is called, and frames with no ticks due skip the event
+ * thread unless something asked to be painted, so an idle game takes no CPU.
+ */
+public class FrameScheduler {
+
+    private static final int MAX_TICKS_PER_FRAME = 5; // ticks further behind than this are dropped
+    private static final long SPIN_NANOS = 1_000_000; // sleep until this close to a deadline, then spin the rest
+
+    private final long tickNanos;
+    private volatile long frameNanos;
+    private final Runnable tick, present;
+    private final BooleanSupplier animating;
+    private final Runnable frame = this::frame;
+    private int dueTicks; // handed from the loop to the event thread, see frame
+    private volatile boolean running;
+    private volatile boolean woken; // something asked to be painted since the last frame
+    private volatile boolean busy = true; // whether anything was animating after the last frame
+    private volatile Thread thread;
+
+    /**
+     * @param tickRate How many times a second to update the game.
+     * @param fps How many frames a second to aim for, see {@link #setTargetFps(int)}.
+     * @param tick Updates the game by one tick, on the event dispatch thread.
+     * @param present Shows what changed since the last frame, on the event dispatch thread.
+     * @param animating Whether anything needs more ticks, asked on the event dispatch thread after every frame. While
+     *                  it is false, the loop sleeps until {@link #wake()}.
+     */
+    public FrameScheduler(int tickRate, int fps, Runnable tick, Runnable present, BooleanSupplier animating) {
+        this.tickNanos = 1_000_000_000L / tickRate;
+        this.tick = tick;
+        this.present = present;
+        this.animating = animating;
+        setTargetFps(fps);
+    }
+
+    /**
+     * Change the frame rate, from the next frame on. Ticks keep their own rate.
+     */
+    public void setTargetFps(int fps) {
+        if (fps < 1)
+            throw new IllegalArgumentException("cannot show " + fps + " frames a second");
+        frameNanos = 1_000_000_000L / fps;
+    }
+
+    public int getTargetFps() {
+        return (int) (1_000_000_000L / frameNanos);
+    }
+
+    /**
+     * Ask for a frame soon, to paint something that changed. Call it on the event dispatch thread, like everything
+     * that changes what is painted. Cheap to call often.
+     */
+    public void wake() {
+        if (woken)
+            return;
+        woken = true;
+        Thread thread = this.thread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        thread = new Thread(this::run, "frame scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null)
+            thread.interrupt();
+        thread = null;
+    }
+
+    private void run() {
+        long previous = System.nanoTime();
+        long deadline = previous;
+        long lag = 0;
+        while (running) {
+            // nothing to animate, so sleep until there is something to paint, and paint it right away
+            if (!busy && !woken) {
+                while (running && !woken)
+                    LockSupport.park(this);
+                if (Thread.interrupted() || !running)
+                    return;
+                previous = System.nanoTime();
+                deadline = previous - frameNanos;
+                lag = 0;
+            }
+
+            // pace frames against fixed deadlines. one that falls more than a frame behind starts the count over,
+            // instead of rushing out frames to catch up
+            long interval = frameNanos;
+            deadline += interval;
+            long now = System.nanoTime();
+            if (now - deadline > interval)
+                deadline = now;
+            if (!waitUntil(deadline))
+                return;
+
+            now = System.nanoTime();
+            lag += now - previous;
+            previous = now;
+            int ticks = (int) Math.min(lag / tickNanos, MAX_TICKS_PER_FRAME);
+            lag = ticks == MAX_TICKS_PER_FRAME ? lag % tickNanos : lag - ticks * tickNanos;
+
+            // with no ticks due and nothing asked for, the frame would not paint anything
+            if (ticks == 0 && !woken)
+                continue;
+
+            dueTicks = ticks;
+            try {
+                SwingUtilities.invokeAndWait(frame);
+            } catch (InterruptedException e) {
+                return;
+            } catch (InvocationTargetException e) {
+                // keep the loop going, like a Swing timer would after its listener throws
+                e.getCause().printStackTrace();
+            }
+        }
+    }
+
+    // on the event dispatch thread
+    private void frame() {
+        for (int i = 0; i < dueTicks; i++)
+            tick.run();
+        present.run();
+        // everything asked for so far was asked for on this thread, so present painted it
+        woken = false;
+        busy = animating.getAsBoolean();
+    }
+
+    // sleeping overshoots by up to a scheduler quantum, so the last bit is spun. returns false if stopped
+    private boolean waitUntil(long deadline) {
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            if (!running || Thread.interrupted())
+                return false;
+            if (left > SPIN_NANOS)
+                LockSupport.parkNanos(left - SPIN_NANOS);
+            else
+                Thread.onSpinWait();
+        }
+        return running;
+    }
+}
@@ -1,611 +1,1083 @@
-import java.awt.AlphaComposite;
-import java.awt.Color;
-import java.awt.Component;
-import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.GraphicsEnvironment;
-import java.awt.Image;
-import java.awt.RenderingHints;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import java.awt.event.MouseMotionListener;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Random;
-
-import javax.swing.ImageIcon;
-import javax.swing.JButton;
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import javax.swing.SwingUtilities;
-import javax.swing.Timer;
-
-public class Game extends JPanel implements MouseListener, MouseMotionListener, KeyListener {
-
-    public static final int PREF_W = 617;
-    public static final int PREF_H = 730;
-
-    // game variables
-    private BoardManager boardManager;
-    private int[] mouseLoc;
-    private int mousex, mousey;
-    private boolean debug = false;
-    private boolean shiftDown = false;
-    
-    // animation variables
-    private int[][] fadeProg;
-    private int[] radarAnimStartLoc;
-    private int fogAnimProg = 0, fogAnimLen = 200,
-        radarAnimProg = 0, radarAnimLen = 30, radarAnimIters = 3, // the radar beam itself
-        radarRotAnimProg = 0, radarRotAnimLen = 360, // rotating the radar
-        size = 16, sizePrev = 16, // tile size
-        bombCount = 40, bombCountPrev = 40, // how many of powers to put
-        radarCount = 5, radarCountPrev = 5,
-        rocketCount = 3, rocketCountPrev = 3;
-    
-    // assets
-    private Image fogImage, flagImage, radarImage, bombImage, rocketImage;
-    private Color[] hintColors = {
-        Color.BLACK, new Color(0, 0, 255), new Color(0, 128, 0),
-        new Color(255, 0, 0), new Color(0, 0, 128), new Color(128, 0, 0),
-        new Color(0, 128, 128), new Color(0, 0, 0), new Color(128, 128, 128)
-    };
-    
-    // swing stuff
-    private Color undiscoveredColor = Color.GRAY.brighter(),
-        discoveredColor = new Color(200, 200, 200, 255),
-        tileShadowColor = new Color(100, 100, 100, 100);
-    private Font hintFont, mainFont, smallFont;
-    private JButton resetButton;
-    
-    private Timer fogProgressTimer = new Timer(1000 / 30, e -> {
-        radarRotAnimProg += 2;
-        radarRotAnimProg %= radarRotAnimLen;
-
-        fogAnimProg++;
-        fogAnimProg %= fogAnimLen;
-
-        if (radarAnimProg > 0 && radarAnimProg < radarAnimLen * radarAnimIters) {
-            radarAnimProg++;
-        
-            
-        } else {
-            radarAnimProg = 0;
-        }
-
-        for (int i = 0; i < fadeProg.length; i++) {
-            for (int j = 0; j < fadeProg[0].length; j++) {
-                // if its fadeProg is != 0, then it is fading
-                if (boardManager.isDiscovered(i, j)) {
-                    fadeProg[i][j] = Math.min(fadeProg[i][j] + 8, fogAnimLen);
-                }
-            }
-        }
-        repaint();
-    });
-
-    public Game() {
-        this.setFocusable(true);
-        this.setBackground(Color.WHITE);
-        this.addMouseListener(this);
-        this.addMouseMotionListener(this);
-        this.addKeyListener(this);
-
-        boardManager = new BoardManager(size, size, bombCount, radarCount, rocketCount);
-        fadeProg = new int[size][size];
-
-        fogImage = new ImageIcon(Game.class.getResource("fog.png")).getImage();
-        flagImage = new ImageIcon(Game.class.getResource("flag.png")).getImage();
-        radarImage = new ImageIcon(Game.class.getResource("radar.png")).getImage();
-        bombImage = new ImageIcon(Game.class.getResource("bomb.png")).getImage();
-        rocketImage = new ImageIcon(Game.class.getResource("rocket.png")).getImage();
-
-        // if Cascadia Mono font is installed on system, use it
-        String[] fonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-        if (Arrays.asList(fonts).contains("Cascadia Mono")) {
-            hintFont = new Font("Cascadia Mono", Font.BOLD, 16);
-            mainFont = new Font("Cascadia Mono", Font.BOLD, 20);
-            smallFont = new Font("Cascadia Mono", Font.PLAIN, 10);
-        } else {
-            hintFont = new Font("Arial", Font.BOLD, 16);
-            mainFont = new Font("Arial", Font.BOLD, 20);
-            smallFont = new Font("Arial", Font.PLAIN, 10);
-        }
-
-        JPanel configPanel = new JPanel();
-        configPanel.setOpaque(false);
-        
-        LeviSlider sizeSlider = new LeviSlider(8, 64, -1, 8, size, true, "Size");
-        sizeSlider.addChangeListener(e -> {
-            size = sizeSlider.getValue();
-            styleButton();
-        });
-        
-        LeviSlider bombSlider = new LeviSlider(1, 100, -1, 10, bombCount, false, "Bombs");        
-        bombSlider.addChangeListener(e -> {
-            bombCount = bombSlider.getValue();
-            styleButton();
-        });
-        
-        LeviSlider radarSlider = new LeviSlider(0, 10, -1, 1, radarCount, false, "Radars");
-        radarSlider.addChangeListener(e -> {
-            radarCount = radarSlider.getValue();
-            styleButton();
-        });
-        
-        LeviSlider rocketSlider = new LeviSlider(0, 10, -1, 1, rocketCount, false, "Rockets");
-        rocketSlider.addChangeListener(e -> {
-            rocketCount = rocketSlider.getValue();
-            styleButton();
-        });
-        
-        resetButton = new JButton("Reset with changes");
-        resetButton.addActionListener(e -> {
-            setPrevs();
-            resetButton.setFont(hintFont);
-        });
-        
-        
-
-        configPanel.add(sizeSlider);
-        // configPanel.add(bombSlider);
-        // configPanel.add(radarSlider);
-        // configPanel.add(rocketSlider);
-        configPanel.add(resetButton);
-
-        // this.add(configPanel);
-
-        fogProgressTimer.start();
-    }
-
-    // recursively configures a component.
-    // if the component is a container, loop through elements and recurse.
-    // else, configure it.
-    public void config(JPanel panel) {
-        for (Component c : panel.getComponents()) {
-            if (c instanceof JPanel) {
-                config((JPanel) c);
-            } else {
-                c.setFocusable(false);
-            }
-        }
-    }
-
-    public boolean changesHaveBeenMade() {
-        return size != sizePrev || bombCount != bombCountPrev || radarCount != radarCountPrev || rocketCount != rocketCountPrev;
-    }
-
-    public void setPrevs() {
-        sizePrev = size;
-        bombCountPrev = bombCount;
-        radarCountPrev = radarCount;
-        rocketCountPrev = rocketCount;
-    }
-
-    public void styleButton() {
-        Font italicized = new Font(hintFont.getName(), Font.ITALIC, hintFont.getSize());
-        resetButton.setFont(italicized);
-    }
-
-    public void paintFog(Graphics2D g2) {
-        int numRows = boardManager.w;
-        int numCols = boardManager.h;
-        int tileSize = boardManager.boardW / numCols;
-        int numCircles = 15; // Number of fog circles per tile
-
-        Random rand = new Random();
-        for (int i = 0; i < numRows; i++) {
-            for (int j = 0; j < numCols; j++) {
-                // if not discovered and the fade animation hasn't yet increased to fogAnimLen
-                if (fadeProg[i][j] < fogAnimLen) {
-                    drawFogTile(g2, i, j, tileSize, numCircles, rand);
-                }
-            }
-        }
-    }
-
-    private void drawFogTile(Graphics2D g2, int i, int j, int tileSize, int numCircles, Random rand) {
-        for (int circleIndex = 1; circleIndex < numCircles + 1; circleIndex++) {
-            // Use Random to create a different seed for each fog circle
-            long seed = circleIndex * 1000000000 + i * 100000 + j * 1000;
-            rand.setSeed(seed);
-
-            // Calculate the position of the fog circle based on animation progress
-            double angle = 2 * Math.PI * fogAnimProg / fogAnimLen + rand.nextDouble() * 2 * Math.PI;
-            boolean nextToDiscovered = false;
-
-            int add = (nextToDiscovered ? 0 : tileSize / 2);
-
-            int radius = rand.nextInt(tileSize / 2) + 2 + fadeProg[i][j] + add;
-            int x = j * tileSize + tileSize / 2 + (int) (Math.cos(angle) * radius * rand.nextDouble())
-                    + rand.nextInt(tileSize / 2) - tileSize / 4 + tileSize / 2;
-            int y = i * tileSize + tileSize / 2 + (int) (Math.sin(angle) * radius * rand.nextDouble())
-                    + rand.nextInt(tileSize / 2) - tileSize / 4 + boardManager.boardY;
-
-            // Draw a transparent fog circle
-
-            float transparency = 1 - (float) fadeProg[i][j] / fogAnimLen;
-            float transparencyMod = 1f;
-            if (mouseLoc != null) {
-                // use x, y, mousex, mousey functions to change x and y to move away from the
-                // mouse the closer the mouse is
-                int dx = x - mousex;
-                int dy = y - mousey;
-                double dist = Math.sqrt(dx * dx + dy * dy);
-                double distFactor = 1 - dist / 100;
-                if (distFactor < 0)
-                    distFactor = 0;
-                // x += dx * distFactor;
-                // y += dy * distFactor;
-
-                transparencyMod = (float) (1 - distFactor);
-            }
-            if (boardManager.flags[i][j] > 0) {
-                transparencyMod = 0;
-            }
-
-            AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, transparency * transparencyMod / 3);
-            g2.setComposite(ac);
-            drawFogCircle(g2, x, y, (int) ((double) tileSize * 0.9d));
-        }
-    }
-
-    private void drawFogCircle(Graphics2D g2, int x, int y, int radius) {
-        // draw the fog image
-        g2.drawImage(fogImage, x - radius, y - radius, radius * 2, radius * 2, null);
-    }
-
-    public void paintGUI(Graphics2D g2) {
-
-        int guiY = boardManager.boardY - 110;
-        int guiH = 95;
-
-        g2.setStroke(new java.awt.BasicStroke(1));
-        g2.setColor(tileShadowColor);
-        g2.fillRoundRect(boardManager.boardX, guiY, boardManager.boardW - 3, guiH, 10, 10);
-        g2.setColor(Color.GRAY);
-        g2.fillRoundRect(boardManager.boardX, guiY, boardManager.boardW, guiH, 10, 10);
-        g2.setColor(Color.BLACK);
-        g2.drawRoundRect(boardManager.boardX, guiY, boardManager.boardW, guiH, 10, 10);
-
-        // draw the minesweeper text
-        g2.setFont(hintFont);
-        g2.drawString("Flagged: " + boardManager.flagCount + "/" + boardManager.bombCount, boardManager.boardX + 10,
-                guiY + 20);
-
-        // draw the main text
-        g2.setFont(mainFont);
-        String txt = "";
-        double pct = boardManager.discoveredCount / (double) (boardManager.w * boardManager.h - boardManager.bombCount);
-        String pctxt = "" + (int) (pct * 100);
-        pctxt = pctxt.substring(0, Math.min(pctxt.length(), 3));
-        if (!boardManager.gameOver && !boardManager.won) {
-            txt = "Clearing Mines - " + pctxt + "% of map cleared";
-        } else if (!boardManager.won) {
-            txt = "Game Over :( - Press r to restart";
-        } else if (boardManager.won) {
-            txt = "You Won! :) - Press r to restart";
-        }
-        int len = g2.getFontMetrics().stringWidth(txt);
-        g2.drawString(txt, boardManager.boardX + boardManager.boardW - len - 10, guiY + 20);
-
-        g2.setFont(smallFont);
-        String[] tutorial = {
-            "LMB to clear a tile, or to use a powerup",
-            "RMB or LMB + Control to flag a tile",
-            "If you click a bomb, you lose.",
-            "If you click a radar, you see close bombs.",
-            "If you click a blast, you clear a vertical row.",
-        };
-
-        for (int i = 0; i < tutorial.length; i++) {
-            g2.drawString(tutorial[i], boardManager.boardX + 10, guiY + 40 + 10 * i);
-        }
-    }
-
-    public void drawToolTip(Graphics2D g2) {
-        // draw tooltip
-        g2.setFont(hintFont);
-        if (debug && mouseLoc != null && boardManager.clickedYet) {
-            g2.setFont(hintFont);
-            g2.setColor(tileShadowColor);
-            g2.fillRoundRect(mousex - 50, mousey - 50, 100, 50, 10, 10);
-            g2.setColor(Color.GRAY);
-            g2.fillRoundRect(mousex - 50, mousey - 50, 100, 50, 10, 10);
-            g2.setColor(Color.BLACK);
-            String[] tooltip = boardManager.getToolTip(mouseLoc[0], mouseLoc[1]);
-            for (int i = 0; i < tooltip.length; i++) {
-                g2.drawString(tooltip[i], mousex - 40, mousey - 40 + 15 * i);
-            }
-        }
-    }
-
-    public double getRadius(int animProg) {
-        double prog = (double) animProg % (double) radarAnimLen;
-        return Math.pow(prog / (double) radarAnimLen, 2) * 100;
-    }
-
-    public void paintRadar(Graphics2D g2) {
-        if (radarAnimProg == 0)
-            return;
-
-        double radius = getRadius(radarAnimProg);
-        double prog = (double) radarAnimProg % (double) radarAnimLen;
-        int alpha = (int) (255 * (1 - prog / (double) radarAnimLen));
-        g2.setColor(new Color(0, 255, 0, alpha));
-        g2.setStroke(new java.awt.BasicStroke(3));
-        g2.drawOval(radarAnimStartLoc[0] - (int) radius, radarAnimStartLoc[1] - (int) radius, (int) radius * 2,
-                (int) radius * 2);
-    }
-
-    public void paintComponent(Graphics g) {
-
-        int boardX = boardManager.boardX;
-        int boardY = boardManager.boardY;
-        int boardW = boardManager.boardW;
-        int boardH = boardManager.boardH;
-        int gap = boardManager.gap; // gap between each tile. each tile should leave gap/2 margin on each side.
-
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
-        g2.setFont(hintFont);
-
-        RenderingHints textOnly = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        RenderingHints interpolation = new RenderingHints(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-                
-        g2.addRenderingHints(textOnly);
-        g2.addRenderingHints(interpolation);
-
-        paintGUI(g2);
-
-        // draw the actual board
-        g2.setColor(Color.GRAY);
-        g2.fillRoundRect(boardX, boardY, boardW, boardH, 10, 10);
-        g2.setColor(Color.BLACK);
-        g2.drawRoundRect(boardX, boardY, boardW, boardH, 10, 10);
-
-        int tileW = boardManager.tileW;
-        int tileH = boardManager.tileH;
-
-        // draw each tile
-        g2.setFont(hintFont);
-        for (int x = 0; x < boardManager.h; x++) {
-            for (int y = 0; y < boardManager.w; y++) {
-                int fullX = boardX + (gap) + y * (tileW + gap);
-                int fullY = boardY + (gap) + x * (tileH + gap);
-
-                // draw the tile box
-                g2.setColor(tileShadowColor);
-                g2.fillRoundRect(fullX, fullY, tileW, tileH, 10, 10);
-
-                g2.setColor(boardManager.isDiscovered(x, y) ? discoveredColor : undiscoveredColor);
-                g2.fillRoundRect(fullX, boardY + gap + x * (tileH + gap), tileW, tileH, 10, 10);
-
-                // if it is discovered, draw the content
-                if (boardManager.isDiscovered(x, y)) {
-
-                    // draw the content of the tile (bombs, powerups etc)
-                    int tile = boardManager.getTile(x, y);
-                    if (tile == boardManager.BOARD_BOMB) {
-                        g2.drawImage(bombImage, fullX, boardY + gap + x * (tileH + gap), tileW, tileH, null);
-                    } else if (tile == boardManager.BOARD_RADAR) {
-
-                        int tileCenterX = fullX + tileW / 2;
-                        int tileCenterY = boardY + gap + x * (tileH + gap) + tileH / 2;
-                        double startRot = new Random(tileCenterX * tileCenterY).nextDouble() * 360;
-                        g2.rotate(Math.toRadians(startRot + radarRotAnimProg), tileCenterX, tileCenterY);
-                        g2.drawImage(radarImage, fullX, boardY + gap + x * (tileH + gap), tileW, tileH, null);
-                        g2.rotate(-Math.toRadians(startRot + radarRotAnimProg), tileCenterX, tileCenterY);
-
-                    } else if (tile == boardManager.BOARD_ROCKET) {
-                        int off = 10;
-                        g2.drawImage(rocketImage, fullX - off, boardY + gap + x * (tileH + gap), tileW + off * 2, tileH, null);
-                    }
-
-                    // draw the number
-                    int bombhint = boardManager.getHint(x, y, boardManager.BOARD_BOMB);
-                    if (bombhint > 0) {
-                        g2.setColor(
-                                (tile == boardManager.BOARD_RADAR || tile == boardManager.BOARD_ROCKET) ? Color.WHITE : hintColors[bombhint-1]);
-                        g2.drawString("" + bombhint, fullX + tileW / 3 + 2,
-                                boardY + gap + x * (tileH + gap) + ((float) tileH / 1.5f));
-                    }
-                }
-
-                // draw the flag
-                if (boardManager.flags[x][y] == 1) {
-                    g2.drawImage(flagImage, fullX, boardY + gap + x * (tileH + gap), tileW, tileH, null);
-
-                    // draw the gameover format
-                    if (boardManager.gameOver && boardManager.getTile(x, y) != boardManager.BOARD_BOMB) {
-                        g2.setColor(Color.RED.darker());
-                        g2.setStroke(new java.awt.BasicStroke(3));
-                        // draw X
-                        g2.drawLine(fullX, boardY + gap + x * (tileH + gap), fullX + tileW,
-                                boardY + gap + x * (tileH + gap) + tileH);
-                        g2.drawLine(fullX + tileW, boardY + gap + x * (tileH + gap), fullX,
-                                boardY + gap + x * (tileH + gap) + tileH);
-                    }
-                }
-
-                // draw the radar animation callout
-                if (boardManager.flags[x][y] == 0 && radarAnimStartLoc != null
-                        && boardManager.getTile(x, y) == boardManager.BOARD_BOMB) {
-                    double radius = getRadius(radarAnimProg);
-                    boolean closeToRing = Math.abs(fullX + tileW / 2 - radarAnimStartLoc[0]) < radius
-                            && Math.abs(boardY + gap + x * (tileH + gap) + tileH / 2 - radarAnimStartLoc[1]) < radius;
-                    if(closeToRing) {
-                        g2.drawImage(bombImage, fullX, boardY + gap + x * (tileH + gap), tileW, tileH, null);
-                    }
-                }
-
-            }
-        }
-
-        // mouse hover highlight
-        if (mouseLoc != null) {
-            int x = mouseLoc[0];
-            int y = mouseLoc[1];
-            g2.setColor(new Color(100, 100, 0, 100));
-            g2.fillRoundRect(boardX + y * (tileW + gap) + gap, boardY + gap + x * (tileH + gap), tileW, tileH, 10, 10);
-        }
-
-        // draw the debug cave
-        if (debug && mouseLoc != null && boardManager.clickedYet) {
-            int x = mouseLoc[0];
-            int y = mouseLoc[1];
-            if (boardManager.getHint(x, y, boardManager.BOARD_BOMB) == 0
-                    && boardManager.getTile(x, y) != boardManager.BOARD_BOMB) {
-                ArrayList<int[]> cave = DFS.cave(boardManager.bombHints, boardManager.board, x, y, 0);
-                for (int[] coord : cave) {
-                    g2.setColor(new Color(100, 100, 0, 100));
-                    g2.fillRoundRect(boardX + gap + coord[1] * (tileW + gap), boardY + gap + coord[0] * (tileH + gap),
-                            tileW, tileH, 10, 10);
-                }
-            }
-        }
-
-        paintFog(g2);
-        paintRadar(g2);
-        drawToolTip(g2);
-
-        AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f);
-        g2.setComposite(ac);
-    }
-
-    @Override
-    public void keyPressed(KeyEvent e) {
-        int c = e.getKeyCode();
-        if (c == KeyEvent.VK_SHIFT)
-            shiftDown = true;
-    }
-
-    @Override
-    public void keyReleased(KeyEvent e) {
-        int c = e.getKeyCode();
-        if (c == KeyEvent.VK_R) {
-            boardManager = new BoardManager(size, size, bombCount,
-                    radarCount, rocketCount);
-            mouseLoc = null;
-            debug = false;
-            mousex = 0;
-            mousey = 0;
-
-            // animation variables
-            fadeProg = new int[boardManager.w][boardManager.h];
-            fogAnimProg = 0;
-            fogAnimLen = 200;
-            radarAnimProg = 0;
-            radarAnimLen = 30;
-            radarAnimIters = 3;
-            radarAnimStartLoc = null;
-        } else if (c == KeyEvent.VK_D) {
-            debug = !debug;
-        } else if (c == KeyEvent.VK_SHIFT) {
-            shiftDown = false;
-        }
-    }
-
-    @Override
-    public void keyTyped(KeyEvent e) {
-    }
-
-    @Override
-    public void mouseDragged(MouseEvent e) {
-    }
-
-    @Override
-    public void mouseMoved(MouseEvent e) {
-        mouseLoc = getMousePos(e);
-    }
-
-    public int[] getMousePos(MouseEvent e) {
-        mousex = e.getX();
-        mousey = e.getY();
-        // get the board entry that the mouse is over
-        int boardX = boardManager.boardX;
-        int boardY = boardManager.boardY;
-        int boardW = boardManager.boardW;
-        int boardH = boardManager.boardH;
-
-        int tileW = boardW / boardManager.h;
-        int tileH = boardH / boardManager.w;
-
-        if (mousex >= boardX && mousex <= boardX + boardW - 5 && mousey >= boardY && mousey <= boardY + boardH - 5) {
-            int x = (mousey - boardY) / tileH;
-            int y = (mousex - boardX) / tileW;
-            return new int[] { x, y };
-        } else {
-            return null;
-        }
-    }
-
-    @Override
-    public void mouseReleased(MouseEvent e) {
-        mouseLoc = getMousePos(e);
-        boolean rmb = e.getButton() == MouseEvent.BUTTON3 || e.isControlDown();
-        if (mouseLoc != null) {
-            int x = mouseLoc[0];
-            int y = mouseLoc[1];
-            if (!rmb) {
-                int ret = boardManager.stepOnTile(x, y);
-
-                if (ret == boardManager.STEPPED_ON_RADAR) {
-                    radarAnimProg = 1;
-                    radarAnimStartLoc = new int[] { e.getX(), e.getY() };
-                } else if (ret == boardManager.STEPPED_ON_ROCKET) {
-                }
-            } else if (rmb || (!rmb && shiftDown)) {
-                boardManager.flagTile(x, y);
-            }
-        }
-    }
-
-    @Override
-    public void mouseEntered(MouseEvent e) {
-    }
-
-    @Override
-    public void mouseExited(MouseEvent e) {
-    }
-
-    @Override
-    public void mousePressed(MouseEvent e) {
-    }
-
-    @Override
-    public void mouseClicked(MouseEvent e) {
-    }
-
-    /* METHODS FOR CREATING JFRAME AND JPANEL */
-
-    public Dimension getPreferredSize() {
-        return new Dimension(PREF_W, PREF_H);
-    }
-
-    private static JPanel gamePanel;
-
-    public static void createAndShowGUI() {
-        JFrame frame = new JFrame("Mineswiffer");
-        gamePanel = new Game();
-
-        frame.getContentPane().add(gamePanel);
-        frame.pack();
-        frame.setLocationRelativeTo(null);
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setVisible(true);
-    }
-
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(new Runnable() {
-            public void run() {
-                createAndShowGUI();
-            }
-        });
-    }
-
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+public class Game extends JPanel
+        implements MouseListener, MouseMotionListener, MouseWheelListener, KeyListener, BoardManager.Listener {
+
+    public static final int PREF_W = 617;
+    public static final int PREF_H = 730;
+    public static final String REPLAY_FILE = "replays.msr"; // every finished game is added to it
+    // levels of detail: zoomed out past this many pixels per tile, there is no fog, and then tiles are plain blocks
+    public static final int FOG_PITCH = 16, BLOCK_PITCH = 12;
+    public static final int PAN_STEP = 60; // how far the arrow keys move the board, in pixels
+    public static final int TICK_RATE = 30; // animation lengths are counted in these ticks
+    public static final int DEFAULT_FPS = 60;
+
+    // the look of the tiles and text, shared with EndlessGame
+    public static final Color[] HINT_COLORS = {
+        Color.BLACK, new Color(0, 0, 255), new Color(0, 128, 0),
+        new Color(255, 0, 0), new Color(0, 0, 128), new Color(128, 0, 0),
+        new Color(0, 128, 128), new Color(0, 0, 0), new Color(128, 128, 128)
+    };
+    public static final Color UNDISCOVERED_COLOR = Color.GRAY.brighter(),
+        DISCOVERED_COLOR = new Color(200, 200, 200, 255);
+    // if Cascadia Mono font is installed on system, use it
+    private static final String FONT_FAMILY = Arrays.asList(
+            GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames()).contains("Cascadia Mono")
+            ? "Cascadia Mono" : "Arial";
+    public static final Font HINT_FONT = new Font(FONT_FAMILY, Font.BOLD, 16),
+        MAIN_FONT = new Font(FONT_FAMILY, Font.BOLD, 20),
+        SMALL_FONT = new Font(FONT_FAMILY, Font.PLAIN, 10);
+
+    // game variables
+    private BoardManager boardManager;
+    private int[] mouseLoc;
+    private int mousex, mousey;
+    private boolean debug = false;
+    private boolean noGuess = false; // new boards can be solved without guessing
+    private final BoardPool boardPool = new BoardPool(4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private boolean shiftDown = false;
+    private Solver solver;
+    private ReplayEngine replay; // checkpoints of this game, for undo
+    private boolean replaySaved; // ending the game again after an undo does not archive it twice
+    private final ExecutorService replayWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replay writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ReplayArchive.Writer replays; // opened by the first finished game, and kept open. only on replayWriter
+    private int[] hintLoc; // the tile the last hint pointed at, if it is still showing
+    private boolean hintIsMine;
+    private ProbabilityEngine probabilityEngine = new ProbabilityEngine();
+    private double[] probabilities; // bomb odds of the hidden tiles for debug mode, null when the board has changed
+
+    // board layout, in pixels
+    private int boardX = 10, boardW = 600, boardY = 120, boardH = 600,
+        gap = 5, // gap between each tile. each tile should leave gap/2 margin on each side.
+        tileW, tileH; // these follow the camera's zoom
+    private final Camera camera = new Camera(boardX, boardY, boardW, boardH);
+    private BufferedImage blocks; // the view of the board when zoomed out, filled a pixel at a time
+    private int[] dragLoc; // where the mouse was dragging the board from, if it is
+    private boolean dragged; // the mouse moved far enough since it was pressed that letting go is not a click
+    
+    // animation variables
+    private int[][] fadeProg;
+    private int[] radarAnimStartLoc;
+    private int fogAnimProg = 0, fogAnimLen = 200,
+        radarAnimProg = 0, radarAnimLen = 30, radarAnimIters = 3, // the radar beam itself
+        radarRotAnimProg = 0, radarRotAnimLen = 360, // rotating the radar
+        size = 16, sizePrev = 16, // tile size
+        bombCount = 40, bombCountPrev = 40, // how many of powers to put
+        radarCount = 5, radarCountPrev = 5,
+        rocketCount = 3, rocketCountPrev = 3;
+    
+    // assets
+    private Image fogImage, flagImage, radarImage, bombImage, rocketImage;
+    private FogRenderer fogRenderer;
+    private SpriteAtlas spriteAtlas;
+    
+    // swing stuff
+    private Color tileShadowColor = new Color(100, 100, 100, 100);
+    private JButton resetButton;
+    
+    // dirty region tracking, so a frame only repaints what changed or is animating
+    private Rectangle dirty; // null when nothing needs repainting
+    private ArrayList<int[]> radarTiles = new ArrayList<>(); // discovered radars, which spin every tick
+    private int hiddenTiles, fogFrame = -1;
+    private int[] fading = new int[64]; // packed indices of revealed tiles whose fog is still fading away
+    private int fadingCount;
+    private static final int MAX_DIRTY_TILES = 256; // reveals bigger than this repaint everything
+
+    // the debug overlay, with what the hot paths cost over the last second
+    private static final int OVERLAY_X = 15, OVERLAY_Y = 125, OVERLAY_W = 400, OVERLAY_LINE = 12;
+    private final LatencyHistogram[] sectionWindows = new LatencyHistogram[Profiler.SECTIONS.length];
+    private String[] overlay = new String[0];
+    private final Font overlayFont = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+    private int overlayTicks; // ticks since the overlay was refreshed
+    private long tilesDrawn, overlayNanos, overlayAllocated; // since the overlay was refreshed
+
+    private final FrameScheduler scheduler;
+
+    // advance every animation by one tick, and mark what it moved
+    private void tick() {
+        radarRotAnimProg += 2;
+        radarRotAnimProg %= radarRotAnimLen;
+
+        fogAnimProg++;
+        fogAnimProg %= fogAnimLen;
+
+        if (debug && ++overlayTicks >= TICK_RATE)
+            refreshOverlay();
+
+        // resting fog only moves when its cached frame changes
+        int frame = FogRenderer.frameOf(fogAnimProg, fogAnimLen);
+        if (hiddenTiles > 0 && frame != fogFrame && camera.getPitch() >= FOG_PITCH) {
+            markAllDirty();
+        }
+        fogFrame = frame;
+
+        if (radarAnimProg > 0) {
+            markRadarPulseDirty(); // includes the tick it ends on, to clear the last ring
+        }
+        if (radarAnimProg > 0 && radarAnimProg < radarAnimLen * radarAnimIters) {
+            radarAnimProg++;
+        
+            
+        } else {
+            radarAnimProg = 0;
+        }
+
+        for (int[] radar : radarTiles) {
+            markTileDirty(radar[0], radar[1], 0);
+        }
+
+        // only the tiles revealed since their fog went away are fading
+        for (int k = 0; k < fadingCount; k++) {
+            int i = fading[k] / boardManager.h;
+            int j = fading[k] % boardManager.h;
+            if (boardManager.isDiscovered(i, j) && fadeProg[i][j] < fogAnimLen) {
+                fadeProg[i][j] = Math.min(fadeProg[i][j] + 8, fogAnimLen);
+                markTileDirty(i, j, fadeProg[i][j]);
+            }
+            // done, or hidden again by an undo
+            if (!boardManager.isDiscovered(i, j) || fadeProg[i][j] >= fogAnimLen)
+                fading[k--] = fading[--fadingCount];
+        }
+    }
+
+    // paint what changed since the last frame right away, instead of queueing a repaint
+    private void present() {
+        if (dirty != null) {
+            paintImmediately(dirty);
+            dirty = null;
+        }
+    }
+
+    // whether the next ticks move anything, so the scheduler keeps ticking
+    private boolean animating() {
+        return debug || radarAnimProg > 0 || fadingCount > 0 || !radarTiles.isEmpty()
+                || (hiddenTiles > 0 && camera.getPitch() >= FOG_PITCH);
+    }
+
+    public Game() {
+        this(DEFAULT_FPS);
+    }
+
+    /**
+     * @param fps How many frames a second to paint at most, see {@link #setTargetFps(int)}.
+     */
+    public Game(int fps) {
+        scheduler = new FrameScheduler(TICK_RATE, fps, this::tick, this::present, this::animating);
+        this.setFocusable(true);
+        this.setBackground(Color.WHITE);
+        this.addMouseListener(this);
+        this.addMouseMotionListener(this);
+        this.addMouseWheelListener(this);
+        this.addKeyListener(this);
+
+        fogImage = new ImageIcon(Game.class.getResource("fog.png")).getImage();
+        fogRenderer = new FogRenderer(fogImage);
+        flagImage = new ImageIcon(Game.class.getResource("flag.png")).getImage();
+        radarImage = new ImageIcon(Game.class.getResource("radar.png")).getImage();
+        bombImage = new ImageIcon(Game.class.getResource("bomb.png")).getImage();
+        rocketImage = new ImageIcon(Game.class.getResource("rocket.png")).getImage();
+
+        spriteAtlas = new SpriteAtlas(bombImage, flagImage, radarImage, rocketImage, HINT_COLORS, HINT_FONT);
+
+        setBoard(newBoard());
+
+        JPanel configPanel = new JPanel();
+        configPanel.setOpaque(false);
+        
+        LeviSlider sizeSlider = new LeviSlider(8, 64, -1, 8, size, true, "Size");
+        sizeSlider.addChangeListener(e -> {
+            size = sizeSlider.getValue();
+            styleButton();
+        });
+        
+        LeviSlider bombSlider = new LeviSlider(1, 100, -1, 10, bombCount, false, "Bombs");        
+        bombSlider.addChangeListener(e -> {
+            bombCount = bombSlider.getValue();
+            styleButton();
+        });
+        
+        LeviSlider radarSlider = new LeviSlider(0, 10, -1, 1, radarCount, false, "Radars");
+        radarSlider.addChangeListener(e -> {
+            radarCount = radarSlider.getValue();
+            styleButton();
+        });
+        
+        LeviSlider rocketSlider = new LeviSlider(0, 10, -1, 1, rocketCount, false, "Rockets");
+        rocketSlider.addChangeListener(e -> {
+            rocketCount = rocketSlider.getValue();
+            styleButton();
+        });
+        
+        resetButton = new JButton("Reset with changes");
+        resetButton.addActionListener(e -> {
+            setPrevs();
+            resetButton.setFont(HINT_FONT);
+        });
+        
+        
+
+        configPanel.add(sizeSlider);
+        // configPanel.add(bombSlider);
+        // configPanel.add(radarSlider);
+        // configPanel.add(rocketSlider);
+        configPanel.add(resetButton);
+
+        // this.add(configPanel);
+    }
+
+    // frames only run, and the replay file is only open, while the panel is on screen
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        scheduler.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        scheduler.stop();
+        replayWriter.execute(this::closeReplays);
+        super.removeNotify();
+    }
+
+    /**
+     * Change how many frames a second are painted. Animations run at {@link #TICK_RATE} whatever this is, so a higher
+     * target only makes input show up sooner.
+     */
+    public void setTargetFps(int fps) {
+        scheduler.setTargetFps(fps);
+    }
+
+    // recursively configures a component.
+    // if the component is a container, loop through elements and recurse.
+    // else, configure it.
+    public void config(JPanel panel) {
+        for (Component c : panel.getComponents()) {
+            if (c instanceof JPanel) {
+                config((JPanel) c);
+            } else {
+                c.setFocusable(false);
+            }
+        }
+    }
+
+    public boolean changesHaveBeenMade() {
+        return size != sizePrev || bombCount != bombCountPrev || radarCount != radarCountPrev || rocketCount != rocketCountPrev;
+    }
+
+    public void setPrevs() {
+        sizePrev = size;
+        bombCountPrev = bombCount;
+        radarCountPrev = radarCount;
+        rocketCountPrev = rocketCount;
+    }
+
+    public void styleButton() {
+        Font italicized = new Font(HINT_FONT.getName(), Font.ITALIC, HINT_FONT.getSize());
+        resetButton.setFont(italicized);
+    }
+
+    public void paintFog(Graphics2D g2) {
+        long start = Profiler.FOG.begin();
+        int[] mouse = mouseLoc != null ? new int[] { mousex, mousey } : null;
+        // fading fog spreads out up to fogAnimLen pixels
+        int[] tiles = visibleTiles(g2, 3 * camera.getPitch() + fogAnimLen);
+        fogRenderer.paint(g2, boardManager, fadeProg, fogAnimProg, fogAnimLen, camera.getPitch(),
+                camera.tileX(0) - gap - boardX, camera.tileY(0) - gap, tiles, mouse);
+        Profiler.FOG.end(start);
+    }
+
+    public void paintGUI(Graphics2D g2) {
+
+        int guiY = boardY - 110;
+        int guiH = 95;
+
+        g2.setStroke(new java.awt.BasicStroke(1));
+        g2.setColor(tileShadowColor);
+        g2.fillRoundRect(boardX, guiY, boardW - 3, guiH, 10, 10);
+        g2.setColor(Color.GRAY);
+        g2.fillRoundRect(boardX, guiY, boardW, guiH, 10, 10);
+        g2.setColor(Color.BLACK);
+        g2.drawRoundRect(boardX, guiY, boardW, guiH, 10, 10);
+
+        // draw the minesweeper text
+        g2.setFont(HINT_FONT);
+        g2.drawString("Flagged: " + boardManager.flagCount + "/" + boardManager.getShownBombCount(), boardX + 10,
+                guiY + 20);
+
+        // draw the main text
+        g2.setFont(MAIN_FONT);
+        String txt = "";
+        double pct = boardManager.discoveredCount / (double) (boardManager.w * boardManager.h - boardManager.bombsPlaced);
+        String pctxt = "" + (int) (pct * 100);
+        pctxt = pctxt.substring(0, Math.min(pctxt.length(), 3));
+        if (!boardManager.gameOver && !boardManager.won) {
+            txt = "Clearing Mines - " + pctxt + "% of map cleared";
+        } else if (!boardManager.won) {
+            txt = "Game Over :( - Press r to restart";
+        } else if (boardManager.won) {
+            txt = "You Won! :) - Press r to restart";
+        }
+        int len = g2.getFontMetrics().stringWidth(txt);
+        g2.drawString(txt, boardX + boardW - len - 10, guiY + 20);
+
+        g2.setFont(SMALL_FONT);
+        String[] tutorial = {
+            "LMB to clear a tile, or to use a powerup. Scroll to zoom, drag or use the arrows to move",
+            "RMB or LMB + Control to flag a tile",
+            "If you click a bomb, you lose.",
+            "If you click a radar, you see close bombs.",
+            "If you click a blast, you clear a vertical row.",
+            "Press H for a hint, U to undo, E for endless mode, N to "
+                    + (noGuess ? "allow guessing." : "never need to guess."),
+        };
+
+        for (int i = 0; i < tutorial.length; i++) {
+            g2.drawString(tutorial[i], boardX + 10, guiY + 40 + 10 * i);
+        }
+    }
+
+    public void drawToolTip(Graphics2D g2) {
+        // draw tooltip
+        g2.setFont(HINT_FONT);
+        if (debug && mouseLoc != null && boardManager.clickedYet) {
+            g2.setFont(HINT_FONT);
+            g2.setColor(tileShadowColor);
+            g2.fillRoundRect(mousex - 50, mousey - 50, 100, 50, 10, 10);
+            g2.setColor(Color.GRAY);
+            g2.fillRoundRect(mousex - 50, mousey - 50, 100, 50, 10, 10);
+            g2.setColor(Color.BLACK);
+            String[] tooltip = boardManager.getToolTip(mouseLoc[0], mouseLoc[1]);
+            for (int i = 0; i < tooltip.length; i++) {
+                g2.drawString(tooltip[i], mousex - 40, mousey - 40 + 15 * i);
+            }
+        }
+    }
+
+    public double getRadius(int animProg) {
+        double prog = (double) animProg % (double) radarAnimLen;
+        return Math.pow(prog / (double) radarAnimLen, 2) * 100;
+    }
+
+    public void paintRadar(Graphics2D g2) {
+        if (radarAnimProg == 0)
+            return;
+
+        double radius = getRadius(radarAnimProg);
+        double prog = (double) radarAnimProg % (double) radarAnimLen;
+        int alpha = (int) (255 * (1 - prog / (double) radarAnimLen));
+        g2.setColor(new Color(0, 255, 0, alpha));
+        g2.setStroke(new java.awt.BasicStroke(3));
+        g2.drawOval(radarAnimStartLoc[0] - (int) radius, radarAnimStartLoc[1] - (int) radius, (int) radius * 2,
+                (int) radius * 2);
+    }
+
+    public void paintComponent(Graphics g) {
+        long start = Profiler.PAINT.begin();
+
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setFont(HINT_FONT);
+
+        RenderingHints textOnly = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        RenderingHints interpolation = new RenderingHints(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                
+        g2.addRenderingHints(textOnly);
+        g2.addRenderingHints(interpolation);
+
+        paintGUI(g2);
+
+        // draw the actual board
+        g2.setColor(Color.GRAY);
+        g2.fillRoundRect(boardX, boardY, boardW, boardH, 10, 10);
+
+        // only the part of the board in view is drawn
+        Shape clip = g2.getClip();
+        g2.clipRect(boardX, boardY, boardW, boardH);
+        if (isZoomedOut())
+            paintBlocks(g2);
+        else
+            paintTiles(g2);
+
+        if (debug && boardManager.clickedYet && !boardManager.gameOver)
+            paintProbabilities(g2);
+        g2.setClip(clip);
+
+        g2.setColor(Color.BLACK);
+        g2.setStroke(new java.awt.BasicStroke(1));
+        g2.drawRoundRect(boardX, boardY, boardW, boardH, 10, 10);
+        paintRadar(g2);
+        drawToolTip(g2);
+        if (debug)
+            paintOverlay(g2);
+
+        AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f);
+        g2.setComposite(ac);
+        Profiler.PAINT.end(start);
+    }
+
+    // frame time percentiles, tiles drawn per frame, allocation rate and the other hot paths, in the top left corner
+    private void paintOverlay(Graphics2D g2) {
+        int h = OVERLAY_LINE * overlay.length + 8;
+        if (!g2.hitClip(OVERLAY_X, OVERLAY_Y, OVERLAY_W, h))
+            return;
+        g2.setColor(new Color(0, 0, 0, 170));
+        g2.fillRoundRect(OVERLAY_X, OVERLAY_Y, OVERLAY_W, h, 10, 10);
+        g2.setColor(Color.WHITE);
+        g2.setFont(overlayFont);
+        for (int i = 0; i < overlay.length; i++)
+            g2.drawString(overlay[i], OVERLAY_X + 6, OVERLAY_Y + OVERLAY_LINE * (i + 1));
+    }
+
+    // start measuring from now. the numbers show up after a second
+    private void startOverlay() {
+        for (Profiler.Section section : Profiler.SECTIONS)
+            section.histogram.reset();
+        Profiler.setHistograms(true);
+        overlay = new String[] { "measuring..." };
+        overlayTicks = 0;
+        overlayNanos = System.nanoTime();
+        overlayAllocated = allocatedBytes();
+        tilesDrawn = 0;
+    }
+
+    // take what the hot paths cost since the last refresh, and start counting again
+    private void refreshOverlay() {
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+        double seconds = Math.max(now - overlayNanos, 1) / 1e9;
+        for (int i = 0; i < sectionWindows.length; i++) {
+            if (sectionWindows[i] == null)
+                sectionWindows[i] = new LatencyHistogram();
+            sectionWindows[i].reset();
+            Profiler.SECTIONS[i].histogram.drainTo(sectionWindows[i]);
+        }
+
+        LatencyHistogram frames = sectionWindows[0];
+        long paints = frames.count();
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(String.format("frame ms  p50 %.2f  p90 %.2f  p99 %.2f  max %.2f", frames.percentile(50) / 1e6,
+                frames.percentile(90) / 1e6, frames.percentile(99) / 1e6, frames.max() / 1e6));
+        lines.add(String.format("%.0f frames/s (target %d), %d tiles drawn per frame", paints / seconds,
+                scheduler.getTargetFps(), paints == 0 ? 0 : tilesDrawn / paints));
+        lines.add(allocated < 0 || overlayAllocated < 0 ? "allocation rate not available"
+                : String.format("event thread allocates %.1f MB/s", (allocated - overlayAllocated) / seconds / 1e6));
+        for (int i = 1; i < sectionWindows.length; i++) {
+            LatencyHistogram section = sectionWindows[i];
+            lines.add(String.format("%-14s %5d calls  p50 %.2f  p99 %.2f  max %.2f ms", Profiler.SECTIONS[i].name,
+                    section.count(), section.percentile(50) / 1e6, section.percentile(99) / 1e6, section.max() / 1e6));
+        }
+        markDirty(OVERLAY_X, OVERLAY_Y, OVERLAY_W, OVERLAY_LINE * Math.max(overlay.length, lines.size()) + 8);
+        overlay = lines.toArray(new String[0]);
+
+        overlayTicks = 0;
+        overlayNanos = now;
+        overlayAllocated = allocated;
+        tilesDrawn = 0;
+    }
+
+    // what this thread has allocated so far, or -1 if the JVM does not say
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+
+    // every tile in view with its sprites, then the highlights and the fog over them
+    private void paintTiles(Graphics2D g2) {
+        spriteAtlas.update(tileW, tileH);
+        // rockets and spinning radars stick out a bit
+        int[] tiles = visibleTiles(g2, 10);
+        for (int x = tiles[0]; x <= tiles[2]; x++) {
+            for (int y = tiles[1]; y <= tiles[3]; y++) {
+                int fullX = camera.tileX(y);
+                int fullY = camera.tileY(x);
+
+                // skip tiles outside of the area being repainted
+                if (!g2.hitClip(fullX - 10, fullY - 10, tileW + 20, tileH + 20))
+                    continue;
+                tilesDrawn++;
+
+                // draw the tile box
+                g2.setColor(tileShadowColor);
+                g2.fillRoundRect(fullX, fullY, tileW, tileH, 10, 10);
+
+                g2.setColor(boardManager.isDiscovered(x, y) ? DISCOVERED_COLOR : UNDISCOVERED_COLOR);
+                g2.fillRoundRect(fullX, fullY, tileW, tileH, 10, 10);
+
+                // if it is discovered, draw the content
+                if (boardManager.isDiscovered(x, y)) {
+
+                    // draw the content of the tile (bombs, powerups etc)
+                    int tile = boardManager.getTile(x, y);
+                    if (tile == boardManager.BOARD_BOMB) {
+                        spriteAtlas.drawTile(g2, SpriteAtlas.BOMB, fullX, fullY);
+                    } else if (tile == boardManager.BOARD_RADAR) {
+
+                        int tileCenterX = fullX + tileW / 2;
+                        int tileCenterY = fullY + tileH / 2;
+                        double startRot = new Random(x * boardManager.h + y).nextDouble() * 360;
+                        g2.rotate(Math.toRadians(startRot + radarRotAnimProg), tileCenterX, tileCenterY);
+                        spriteAtlas.drawTile(g2, SpriteAtlas.RADAR, fullX, fullY);
+                        g2.rotate(-Math.toRadians(startRot + radarRotAnimProg), tileCenterX, tileCenterY);
+
+                    } else if (tile == boardManager.BOARD_ROCKET) {
+                        spriteAtlas.drawTile(g2, SpriteAtlas.ROCKET, fullX, fullY);
+                    }
+
+                    // draw the number
+                    int bombhint = boardManager.getHint(x, y, boardManager.BOARD_BOMB);
+                    if (bombhint > 0) {
+                        spriteAtlas.drawHint(g2, bombhint,
+                                tile == boardManager.BOARD_RADAR || tile == boardManager.BOARD_ROCKET, fullX, fullY);
+                    }
+                }
+
+                // draw the flag
+                if (boardManager.getFlag(x, y) == 1) {
+                    spriteAtlas.drawTile(g2, SpriteAtlas.FLAG, fullX, fullY);
+
+                    // draw the gameover format
+                    if (boardManager.gameOver && boardManager.getTile(x, y) != boardManager.BOARD_BOMB) {
+                        g2.setColor(Color.RED.darker());
+                        g2.setStroke(new java.awt.BasicStroke(3));
+                        // draw X
+                        g2.drawLine(fullX, fullY, fullX + tileW, fullY + tileH);
+                        g2.drawLine(fullX + tileW, fullY, fullX, fullY + tileH);
+                    }
+                }
+
+                // draw the radar animation callout
+                if (boardManager.getFlag(x, y) == 0 && radarAnimStartLoc != null
+                        && boardManager.getTile(x, y) == boardManager.BOARD_BOMB) {
+                    double radius = getRadius(radarAnimProg);
+                    boolean closeToRing = Math.abs(fullX + tileW / 2 - radarAnimStartLoc[0]) < radius
+                            && Math.abs(fullY + tileH / 2 - radarAnimStartLoc[1]) < radius;
+                    if(closeToRing) {
+                        spriteAtlas.drawTile(g2, SpriteAtlas.BOMB, fullX, fullY);
+                    }
+                }
+
+            }
+        }
+
+        // mouse hover highlight
+        if (mouseLoc != null) {
+            int x = mouseLoc[0];
+            int y = mouseLoc[1];
+            g2.setColor(new Color(100, 100, 0, 100));
+            g2.fillRoundRect(camera.tileX(y), camera.tileY(x), tileW, tileH, 10, 10);
+        }
+
+        // hint highlight
+        if (hintLoc != null) {
+            g2.setColor(hintIsMine ? new Color(255, 0, 0, 120) : new Color(0, 200, 0, 120));
+            g2.fillRoundRect(camera.tileX(hintLoc[1]), camera.tileY(hintLoc[0]), tileW, tileH, 10, 10);
+        }
+
+        // draw the debug cave
+        if (debug && mouseLoc != null && boardManager.clickedYet) {
+            int h = boardManager.h;
+            g2.setColor(new Color(100, 100, 0, 100));
+            boardManager.forEachCaveTile(mouseLoc[0], mouseLoc[1], index -> g2
+                    .fillRoundRect(camera.tileX(index % h), camera.tileY(index / h), tileW, tileH, 10, 10));
+        }
+
+        if (camera.getPitch() >= FOG_PITCH)
+            paintFog(g2);
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
+    }
+
+    // zoomed out, each tile in view is a block of one color, written straight into an image. that costs the same
+    // however many tiles there are, and there is no fog or sprites to draw
+    private void paintBlocks(Graphics2D g2) {
+        if (blocks == null)
+            blocks = new BufferedImage(boardW, boardH, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) blocks.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, Color.GRAY.getRGB());
+
+        int[] tiles = visibleTiles(g2, 0);
+        tilesDrawn += (long) (tiles[2] - tiles[0] + 1) * (tiles[3] - tiles[1] + 1);
+        for (int x = tiles[0]; x <= tiles[2]; x++) {
+            int top = Math.max(0, camera.tileY(x) - boardY);
+            int bottom = Math.min(boardH, camera.tileY(x) + tileH - boardY);
+            for (int y = tiles[1]; y <= tiles[3]; y++) {
+                int left = Math.max(0, camera.tileX(y) - boardX);
+                int right = Math.min(boardW, camera.tileX(y) + tileW - boardX);
+                int color = blockColor(x, y);
+                for (int row = top; row < bottom; row++)
+                    Arrays.fill(pixels, row * boardW + left, row * boardW + right, color);
+            }
+        }
+        g2.drawImage(blocks, boardX, boardY, null);
+
+        if (mouseLoc != null) {
+            g2.setColor(new Color(100, 100, 0, 100));
+            g2.fillRect(camera.tileX(mouseLoc[1]), camera.tileY(mouseLoc[0]), tileW, tileH);
+        }
+        if (hintLoc != null) {
+            g2.setColor(hintIsMine ? new Color(255, 0, 0, 120) : new Color(0, 200, 0, 120));
+            g2.fillRect(camera.tileX(hintLoc[1]), camera.tileY(hintLoc[0]), tileW, tileH);
+        }
+    }
+
+    // what a tile looks like from far away
+    private int blockColor(int x, int y) {
+        if (boardManager.getFlag(x, y) == 1)
+            return Color.RED.getRGB();
+        if (!boardManager.isDiscovered(x, y))
+            return UNDISCOVERED_COLOR.getRGB();
+        int tile = boardManager.getTile(x, y);
+        if (tile == BoardManager.BOARD_BOMB)
+            return Color.BLACK.getRGB();
+        if (tile == BoardManager.BOARD_RADAR || tile == BoardManager.BOARD_ROCKET)
+            return Color.GREEN.darker().getRGB();
+        int bombhint = boardManager.getHint(x, y, BoardManager.BOARD_BOMB);
+        return bombhint > 0 ? HINT_COLORS[bombhint - 1].brighter().getRGB() : DISCOVERED_COLOR.brighter().getRGB();
+    }
+
+    // the tiles that can be seen through the clip, and a margin around it
+    private int[] visibleTiles(Graphics2D g2, int margin) {
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        return camera.visibleTiles(clip.x, clip.y, clip.width, clip.height, margin);
+    }
+
+    public boolean isZoomedOut() {
+        return camera.getPitch() < BLOCK_PITCH;
+    }
+
+    // tint every hidden tile from green to red by how likely it is to be a bomb, over the fog
+    public void paintProbabilities(Graphics2D g2) {
+        if (probabilities == null) {
+            solver.buildConstraints();
+            probabilities = probabilityEngine.compute(solver);
+        }
+
+        g2.setFont(SMALL_FONT);
+        int[] tiles = visibleTiles(g2, 0);
+        for (int i = tiles[0]; i <= tiles[2]; i++) {
+            for (int j = tiles[1]; j <= tiles[3]; j++) {
+                double p = probabilities[i * boardManager.h + j];
+                int fullX = camera.tileX(j);
+                int fullY = camera.tileY(i);
+                if (p < 0 || !g2.hitClip(fullX, fullY, tileW, tileH))
+                    continue;
+                g2.setColor(new Color((int) (255 * p), (int) (200 * (1 - p)), 0, 110));
+                if (isZoomedOut())
+                    g2.fillRect(fullX, fullY, tileW, tileH);
+                else
+                    g2.fillRoundRect(fullX, fullY, tileW, tileH, 10, 10);
+                if (tileW >= 24) {
+                    g2.setColor(Color.WHITE);
+                    g2.drawString(Math.round(p * 100) + "%", fullX + 3, fullY + tileH - 4);
+                }
+            }
+        }
+    }
+
+    public void markDirty(int x, int y, int w, int h) {
+        Rectangle rect = new Rectangle(x, y, w, h);
+        if (dirty == null)
+            dirty = rect;
+        else
+            dirty.add(rect);
+        scheduler.wake();
+    }
+
+    public void markAllDirty() {
+        markDirty(0, 0, getWidth(), getHeight());
+    }
+
+    // a tile, with room for the fog around it, which spreads out further the more it has faded. tiles out of view
+    // are left alone
+    private void markTileDirty(int x, int y, int fade) {
+        int margin = 3 * (tileW + gap) + fade;
+        Rectangle rect = new Rectangle(camera.tileX(y) - margin, camera.tileY(x) - margin, tileW + margin * 2,
+                tileH + margin * 2);
+        if (rect.intersects(boardX, boardY, boardW, boardH))
+            markDirty(rect.x, rect.y, rect.width, rect.height);
+    }
+
+    private void markGUIDirty() {
+        markDirty(boardX, boardY - 110, boardW + 1, 96);
+    }
+
+    // the ring, and the bombs it shows
+    private void markRadarPulseDirty() {
+        int reach = (int) getRadius(radarAnimLen - 1) + tileW + gap + 3;
+        markDirty(radarAnimStartLoc[0] - reach, radarAnimStartLoc[1] - reach, reach * 2, reach * 2);
+    }
+
+    // the hover highlight, the fog thinned out by the mouse, and the tooltip
+    private void markMouseDirty() {
+        if (debug) {
+            markAllDirty(); // the debug cave can be anywhere
+            return;
+        }
+        int reach = 100 + 3 * (tileW + gap);
+        markDirty(mousex - reach, mousey - reach, reach * 2, reach * 2);
+    }
+
+    @Override
+    public void tilesRevealed(RevealDelta delta) {
+        hiddenTiles -= delta.size();
+        probabilities = null;
+        boolean all = debug || delta.size() > MAX_DIRTY_TILES;
+        if (all)
+            markAllDirty();
+        for (int i = 0; i < delta.size(); i++) {
+            int x = delta.x(i);
+            int y = delta.y(i);
+            if (boardManager.getTile(x, y) == BoardManager.BOARD_RADAR)
+                radarTiles.add(new int[] { x, y });
+            if (fadingCount == fading.length)
+                fading = Arrays.copyOf(fading, fadingCount * 2);
+            fading[fadingCount++] = delta.get(i);
+            if (!all)
+                markTileDirty(x, y, 0);
+        }
+        markGUIDirty();
+    }
+
+    @Override
+    public void tileChanged(int x, int y) {
+        probabilities = null;
+        radarTiles.removeIf(radar -> radar[0] == x && radar[1] == y);
+        markTileDirty(x, y, 0);
+    }
+
+    @Override
+    public void flagChanged(int x, int y) {
+        probabilities = null;
+        if (debug)
+            markAllDirty(); // a flag changes the odds all along the frontier
+        markTileDirty(x, y, 0);
+        markGUIDirty();
+    }
+
+    @Override
+    public void gameEnded(boolean won) {
+        markAllDirty();
+
+        // an undo can change the record while it is being written, so the writer gets its own copy
+        if (replaySaved || boardManager.recording == null)
+            return;
+        replaySaved = true;
+        GameRecord record = boardManager.recording.copy();
+        replayWriter.execute(() -> saveReplay(record));
+    }
+
+    // on the replay writer. each game is flushed right away, so quitting never loses one
+    private void saveReplay(GameRecord record) {
+        try {
+            if (replays == null)
+                replays = new ReplayArchive.Writer(Paths.get(REPLAY_FILE));
+            replays.write(record);
+            replays.flush();
+        } catch (IOException e) {
+            System.out.println("Could not save the replay: " + e.getMessage());
+        }
+    }
+
+    private void closeReplays() {
+        if (replays == null)
+            return;
+        try {
+            replays.close();
+        } catch (IOException e) {
+            System.out.println("Could not close the replays: " + e.getMessage());
+        }
+        replays = null;
+    }
+
+    // ask the solver for a tile that is certainly safe, or else certainly a bomb, and highlight it
+    public void showHint() {
+        if (!boardManager.clickedYet || boardManager.gameOver || !solver.solve())
+            return;
+        int[] safe = solver.getSafe();
+        hintIsMine = safe.length == 0;
+        int index = hintIsMine ? solver.getMines()[0] : safe[0];
+        hintLoc = new int[] { index / boardManager.h, index % boardManager.h };
+        markTileDirty(hintLoc[0], hintLoc[1], 0);
+    }
+
+    public BoardManager newBoard() {
+        return boardPool.newBoard(size, size, bombCount, radarCount, rocketCount, noGuess);
+    }
+
+    // take back the last step or flag, even one that ended the game
+    public void undo() {
+        if (!replay.undo())
+            return;
+
+        // the board was restored without events, so recount what they keep track of
+        hiddenTiles = 0;
+        radarTiles.clear();
+        for (int i = 0; i < boardManager.w; i++) {
+            for (int j = 0; j < boardManager.h; j++) {
+                if (!boardManager.isDiscovered(i, j)) {
+                    hiddenTiles++;
+                    fadeProg[i][j] = 0;
+                } else if (boardManager.getTile(i, j) == BoardManager.BOARD_RADAR) {
+                    radarTiles.add(new int[] { i, j });
+                }
+            }
+        }
+        probabilities = null;
+        hintLoc = null;
+        markAllDirty();
+    }
+
+    // swap in a new board, and reset everything that was tracking the old one
+    public void setBoard(BoardManager boardManager) {
+        if (this.boardManager != null)
+            this.boardManager.removeListener(this);
+        this.boardManager = boardManager;
+        boardManager.addListener(this);
+        replay = new ReplayEngine(boardManager);
+        replaySaved = false;
+        solver = new Solver(boardManager);
+        probabilities = null;
+        hintLoc = null;
+        hiddenTiles = boardManager.w * boardManager.h;
+        radarTiles.clear();
+        fadingCount = 0;
+        markAllDirty();
+        camera.fit(boardManager.w, boardManager.h);
+        updateLayout();
+        mouseLoc = null;
+        debug = false;
+        Profiler.setHistograms(false);
+        mousex = 0;
+        mousey = 0;
+
+        // animation variables
+        fadeProg = new int[boardManager.w][boardManager.h];
+        fogAnimProg = 0;
+        fogAnimLen = 200;
+        radarAnimProg = 0;
+        radarAnimLen = 30;
+        radarAnimIters = 3;
+        radarAnimStartLoc = null;
+    }
+
+    // take the tile size from the camera, after it fit a board or zoomed
+    private void updateLayout() {
+        gap = camera.getGap();
+        tileW = camera.getTileSize();
+        tileH = camera.getTileSize();
+    }
+
+    // move the board, and what is under the mouse with it
+    private void pan(int dx, int dy) {
+        camera.pan(dx, dy);
+        mouseLoc = camera.tileAt(mousex, mousey);
+        markAllDirty();
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int c = e.getKeyCode();
+        if (c == KeyEvent.VK_SHIFT)
+            shiftDown = true;
+        else if (c == KeyEvent.VK_LEFT)
+            pan(PAN_STEP, 0);
+        else if (c == KeyEvent.VK_RIGHT)
+            pan(-PAN_STEP, 0);
+        else if (c == KeyEvent.VK_UP)
+            pan(0, PAN_STEP);
+        else if (c == KeyEvent.VK_DOWN)
+            pan(0, -PAN_STEP);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int c = e.getKeyCode();
+        if (c == KeyEvent.VK_R) {
+            setBoard(newBoard());
+        } else if (c == KeyEvent.VK_N) {
+            noGuess = !noGuess;
+            setBoard(newBoard());
+        } else if (c == KeyEvent.VK_D) {
+            debug = !debug;
+            if (debug)
+                startOverlay();
+            else
+                Profiler.setHistograms(false);
+            markAllDirty();
+        } else if (c == KeyEvent.VK_E) {
+            EndlessGame.createAndShowGUI(new Random().nextLong());
+        } else if (c == KeyEvent.VK_H) {
+            showHint();
+        } else if (c == KeyEvent.VK_U) {
+            undo();
+        } else if (c == KeyEvent.VK_SHIFT) {
+            shiftDown = false;
+        }
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        if (dragLoc == null)
+            return;
+        int dx = e.getX() - dragLoc[0], dy = e.getY() - dragLoc[1];
+        // a little wobble while clicking is not a drag
+        if (!dragged && Math.abs(dx) + Math.abs(dy) < 5)
+            return;
+        dragged = true;
+        dragLoc = new int[] { e.getX(), e.getY() };
+        mousex = e.getX();
+        mousey = e.getY();
+        pan(dx, dy);
+    }
+
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        if (!camera.zoom(e.getX(), e.getY(), -e.getWheelRotation()))
+            return;
+        updateLayout();
+        mouseLoc = getMousePos(e);
+        markAllDirty();
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        markMouseDirty();
+        mouseLoc = getMousePos(e);
+        markMouseDirty();
+
+        // no-guess boards depend on the exact first click, so start on the one under the mouse
+        if (mouseLoc != null && !boardManager.clickedYet && boardManager.pooled != null)
+            boardManager.pooled.prefetch(boardManager, mouseLoc[0], mouseLoc[1]);
+    }
+
+    public int[] getMousePos(MouseEvent e) {
+        mousex = e.getX();
+        mousey = e.getY();
+        // get the board entry that the mouse is over
+        return camera.tileAt(mousex, mousey);
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        dragLoc = null;
+        mouseLoc = getMousePos(e);
+        if (dragged) {
+            dragged = false;
+            return; // the board was dragged, not clicked
+        }
+        if (hintLoc != null) {
+            markTileDirty(hintLoc[0], hintLoc[1], 0);
+            hintLoc = null;
+        }
+        boolean rmb = e.getButton() == MouseEvent.BUTTON3 || e.isControlDown();
+        if (mouseLoc != null) {
+            int x = mouseLoc[0];
+            int y = mouseLoc[1];
+            if (!rmb) {
+                int ret = boardManager.stepOnTile(x, y);
+
+                if (ret == boardManager.STEPPED_ON_RADAR) {
+                    radarAnimProg = 1;
+                    radarAnimStartLoc = new int[] { e.getX(), e.getY() };
+                    scheduler.wake();
+                } else if (ret == boardManager.STEPPED_ON_ROCKET) {
+                }
+            } else if (rmb || (!rmb && shiftDown)) {
+                boardManager.flagTile(x, y);
+            }
+        }
+    }
+
+    @Override
+    public void mouseEntered(MouseEvent e) {
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        dragLoc = new int[] { e.getX(), e.getY() };
+    }
+
+    @Override
+    public void mouseClicked(MouseEvent e) {
+    }
+
+    /* METHODS FOR CREATING JFRAME AND JPANEL */
+
+    public Dimension getPreferredSize() {
+        return new Dimension(PREF_W, PREF_H);
+    }
+
+    private static JPanel gamePanel;
+
+    public static void createAndShowGUI(int fps) {
+        JFrame frame = new JFrame("Mineswiffer");
+        gamePanel = new Game(fps);
+
+        frame.getContentPane().add(gamePanel);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setVisible(true);
+    }
+
+    // usage: java Game [fps]
+    public static void main(String[] args) {
+        int fps = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FPS;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                createAndShowGUI(fps);
+            }
+        });
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The binary frames {@link GameServer} and its clients talk in. Numbers are big endian, varints are the ones
+ * {@link GameRecord} uses.
+ * <p>
+ * Client to server, one fixed size frame per request:
+ * <pre>
+ * NEW_GAME  type, w (2 bytes), h (2 bytes), bombs (4 bytes), radars, rockets, flags (bit 0 - no guess)
+ * STEP      type, packed index (4 bytes)
+ * FLAG      type, packed index (4 bytes)
+ * </pre>
+ * Server to client, one frame per request, in order:
+ * <pre>
+ * length (4 bytes), status, tile count, tiles, flag count, flags
+ * </pre>
+ * The status holds the {@code STEPPED_ON_*} result in bits 0-1, then {@link #GAME_OVER} and {@link #WON}. The tiles
+ * are the ones the request revealed or changed, each a varint of {@code zigzag(index - previous index) << 6 | tile << 4
+ * | hint}. The flags are the tiles whose flag changed, each a varint of {@code zigzag(index - previous index) << 2 |
+ * flag}. A cave is mostly neighbors in a row, so most tiles take one byte. Nothing else about the board is ever sent.
+ */
+public class GameProtocol {
+
+    public static final byte NEW_GAME = 0;
+    public static final byte STEP = 1;
+    public static final byte FLAG = 2;
+
+    public static final int NEW_GAME_SIZE = 12;
+    public static final int ACTION_SIZE = 5;
+    public static final int MAX_CELLS = 1 << 22; // keeps the shifted tile varints in an int
+
+    public static final int GAME_OVER = 1 << 2;
+    public static final int WON = 1 << 3;
+
+    /**
+     * @return The size of the request starting at the buffer's position, or -1 if its type is unknown.
+     */
+    public static int requestSize(ByteBuffer buffer) {
+        byte type = buffer.get(buffer.position());
+        return type == NEW_GAME ? NEW_GAME_SIZE : type == STEP || type == FLAG ? ACTION_SIZE : -1;
+    }
+
+    public static void putNewGame(ByteBuffer buffer, int w, int h, int bombs, int radars, int rockets,
+            boolean noGuess) {
+        buffer.put(NEW_GAME).putShort((short) w).putShort((short) h).putInt(bombs).put((byte) radars)
+                .put((byte) rockets).put((byte) (noGuess ? 1 : 0));
+    }
+
+    public static void putAction(ByteBuffer buffer, byte type, int cell) {
+        buffer.put(type).putInt(cell);
+    }
+
+    /**
+     * @return The most bytes a response with this many tiles and flags can take, length included.
+     */
+    public static int maxResponseSize(int tiles, int flags) {
+        return 4 + 1 + 5 + tiles * 5 + 5 + flags * 5;
+    }
+
+    /**
+     * Write a response. The buffer needs {@link #maxResponseSize} bytes left.
+     * @param revealed The tiles the request revealed.
+     * @param changed The packed indices of the tiles that changed without being revealed, like a used powerup.
+     * @param flags The packed indices of the tiles whose flag changed.
+     */
+    public static void putResponse(ByteBuffer buffer, int status, BoardManager game, RevealDelta revealed,
+            int[] changed, int changedCount, int[] flags, int flagCount) {
+        int start = buffer.position();
+        buffer.position(start + 4);
+        buffer.put((byte) status);
+
+        GameRecord.putVarint(buffer, revealed.size() + changedCount);
+        int previous = 0;
+        for (int i = 0; i < revealed.size() + changedCount; i++) {
+            int cell = i < revealed.size() ? revealed.get(i) : changed[i - revealed.size()];
+            int content = game.board.getTile(cell) << 4 | game.board.getHint(cell);
+            GameRecord.putVarint(buffer, zigzag(cell - previous) << 6 | content);
+            previous = cell;
+        }
+
+        GameRecord.putVarint(buffer, flagCount);
+        previous = 0;
+        for (int i = 0; i < flagCount; i++) {
+            int cell = flags[i];
+            GameRecord.putVarint(buffer, zigzag(cell - previous) << 2 | game.board.getFlag(cell));
+            previous = cell;
+        }
+        buffer.putInt(start, buffer.position() - start - 4);
+    }
+
+    /**
+     * Gets the parts of a response, see {@link #readResponse}.
+     */
+    public interface ResponseReader {
+        void tile(int cell, int tile, int hint);
+
+        void flag(int cell, int flag);
+    }
+
+    /**
+     * Read the body of a response, after its length.
+     * @return The status.
+     */
+    public static int readResponse(ByteBuffer buffer, ResponseReader reader) {
+        int status = buffer.get() & 0xFF;
+
+        int count = GameRecord.getVarint(buffer);
+        int cell = 0;
+        for (int i = 0; i < count; i++) {
+            int packed = GameRecord.getVarint(buffer);
+            cell += unzigzag(packed >>> 6);
+            reader.tile(cell, (packed >>> 4) & 0b11, packed & 0b1111);
+        }
+
+        count = GameRecord.getVarint(buffer);
+        cell = 0;
+        for (int i = 0; i < count; i++) {
+            int packed = GameRecord.getVarint(buffer);
+            cell += unzigzag(packed >>> 2);
+            reader.flag(cell, packed & 0b11);
+        }
+        return status;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,192 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Everything needed to play a game again: the seed, the settings, and every step and flag with its time.
+ * Boards only depend on the seed, the settings and the first click, so that is enough to rebuild the whole game.
+ * <p>
+ * Encoded as, with every number a varint:
+ * <pre>
+ * seed (8 bytes), w, h, bombCount, radarCount, rocketCount, flags (bit 0 - no guess), startMillis (8 bytes), actions,
+ * then per action: zigzag(cell - previous cell) &lt;&lt; 1 | type, millis since the previous action
+ * </pre>
+ * Players mostly click close to their last click, so most actions take 2 or 3 bytes.
+ */
+public class GameRecord {
+
+    public static final byte STEP = 0;
+    public static final byte FLAG = 1;
+
+    public final long seed, startMillis;
+    public final int w, h, bombCount, radarCount, rocketCount;
+    public final boolean noGuess;
+
+    private byte[] types = new byte[16];
+    private int[] cells = new int[16];
+    private int[] times = new int[16]; // millis since startMillis
+    private int size;
+
+    public GameRecord(long seed, int w, int h, int bombCount, int radarCount, int rocketCount, boolean noGuess,
+            long startMillis) {
+        this.seed = seed;
+        this.w = w;
+        this.h = h;
+        this.bombCount = bombCount;
+        this.radarCount = radarCount;
+        this.rocketCount = rocketCount;
+        this.noGuess = noGuess;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Start recording a game, from now.
+     * @param boardManager The game, before its first click.
+     */
+    public GameRecord(BoardManager boardManager) {
+        this(boardManager.seed, boardManager.w, boardManager.h, boardManager.bombCount, boardManager.radarCount,
+                boardManager.rocketCount, boardManager.noGuess, System.currentTimeMillis());
+    }
+
+    /**
+     * Add an action that is happening now.
+     */
+    public void record(byte type, int x, int y) {
+        add(type, x * h + y, (int) (System.currentTimeMillis() - startMillis));
+    }
+
+    public void add(byte type, int cell, int time) {
+        if (size == cells.length) {
+            types = Arrays.copyOf(types, size * 2);
+            cells = Arrays.copyOf(cells, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        types[size] = type;
+        cells[size] = cell;
+        times[size] = time;
+        size++;
+    }
+
+    /**
+     * @return A record of the same game and actions so far, which later changes to this one leave alone.
+     */
+    public GameRecord copy() {
+        GameRecord copy = new GameRecord(seed, w, h, bombCount, radarCount, rocketCount, noGuess, startMillis);
+        for (int i = 0; i < size; i++)
+            copy.add(types[i], cells[i], times[i]);
+        return copy;
+    }
+
+    /**
+     * Forget every action after the first {@code size}.
+     */
+    public void truncate(int size) {
+        this.size = Math.min(this.size, size);
+    }
+
+    /** @return How many actions there are. */
+    public int size() {
+        return size;
+    }
+
+    public byte getType(int action) {
+        return types[action];
+    }
+
+    /** @return The packed index of the tile the action was on. */
+    public int getCell(int action) {
+        return cells[action];
+    }
+
+    /** @return When the action happened, in millis since {@link #startMillis}. */
+    public int getTime(int action) {
+        return times[action];
+    }
+
+    /**
+     * @return A new game with the same seed and settings, before its first click.
+     */
+    public BoardManager newGame() {
+        BoardManager boardManager = new BoardManager(w, h, bombCount, radarCount, rocketCount, seed);
+        boardManager.noGuess = noGuess;
+        return boardManager;
+    }
+
+    /**
+     * Do one action on a game.
+     */
+    public void apply(int action, BoardManager boardManager) {
+        int x = cells[action] / h, y = cells[action] % h;
+        if (types[action] == STEP)
+            boardManager.stepOnTile(x, y);
+        else
+            boardManager.flagTile(x, y);
+    }
+
+    /**
+     * @return The most bytes {@link #encode} can take, to size buffers.
+     */
+    public int maxEncodedSize() {
+        return 8 + 5 * 5 + 1 + 8 + 5 + size * 10;
+    }
+
+    public void encode(ByteBuffer buffer) {
+        buffer.putLong(seed);
+        putVarint(buffer, w);
+        putVarint(buffer, h);
+        putVarint(buffer, bombCount);
+        putVarint(buffer, radarCount);
+        putVarint(buffer, rocketCount);
+        buffer.put((byte) (noGuess ? 1 : 0));
+        buffer.putLong(startMillis);
+        putVarint(buffer, size);
+
+        int cell = 0, time = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = cells[i] - cell;
+            putVarint(buffer, ((delta << 1) ^ (delta >> 31)) << 1 | types[i]);
+            putVarint(buffer, times[i] - time);
+            cell = cells[i];
+            time = times[i];
+        }
+    }
+
+    public static GameRecord decode(ByteBuffer buffer) {
+        long seed = buffer.getLong();
+        int w = getVarint(buffer), h = getVarint(buffer);
+        int bombCount = getVarint(buffer), radarCount = getVarint(buffer), rocketCount = getVarint(buffer);
+        boolean noGuess = (buffer.get() & 1) != 0;
+        long startMillis = buffer.getLong();
+        GameRecord record = new GameRecord(seed, w, h, bombCount, radarCount, rocketCount, noGuess, startMillis);
+
+        int actions = getVarint(buffer);
+        int cell = 0, time = 0;
+        for (int i = 0; i < actions; i++) {
+            int packed = getVarint(buffer);
+            int zigzag = packed >>> 1;
+            cell += (zigzag >>> 1) ^ -(zigzag & 1);
+            time += getVarint(buffer);
+            record.add((byte) (packed & 1), cell, time);
+        }
+        return record;
+    }
+
+    // 7 bits at a time, low bits first, with the top bit set on every byte but the last
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts one game per connection, speaking {@link GameProtocol}, for thousands of connections at once.
+ * <p>
+ * One thread accepts connections and hands them out in turn to a few worker threads. Each worker runs a
+ * {@link Selector} over its connections, and plays their requests on their own {@link BoardManager} as they come in, so
+ * a game is only ever touched by one thread at a time. Responses are queued per connection, and a connection is not read
+ * from while its responses pile up faster than it takes them.
+ * <p>
+ * Making a board on the first step can take a long time, especially a no-guess one, so it is handed to a separate pool
+ * of generator threads. The connection is not read from until the board is made, and its worker then picks up where it
+ * left off, so one client making a big board does not hold up the others on the same worker.
+ * <p>
+ * Usage: {@code java GameServer [port] [threads]}. See {@link LoadGenerator} for a client.
+ */
+public class GameServer implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_PENDING_OUTPUT = 1 << 20; // stop reading a connection with this much left to send
+
+    private final ServerSocketChannel serverChannel;
+    private final Worker[] workers;
+    private final ExecutorService generators; // make the boards of first steps, off the workers
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong(), bytesOut = new AtomicLong();
+
+    // one connection and its game
+    private final class Session implements BoardManager.Listener {
+        final SocketChannel channel;
+        final Worker worker;
+        final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        SelectionKey key;
+        BoardManager game;
+        boolean generating; // the board is being made by a generator, so requests wait
+        RuntimeException generateFailure;
+
+        // what the current request changed, apart from the reveals
+        int[] changed = new int[16], flags = new int[16];
+        int changedCount, flagCount;
+
+        Session(SocketChannel channel, Worker worker) {
+            this.channel = channel;
+            this.worker = worker;
+        }
+
+        @Override
+        public void tileChanged(int x, int y) {
+            if (changedCount == changed.length)
+                changed = Arrays.copyOf(changed, changedCount * 2);
+            changed[changedCount++] = game.board.index(x, y);
+        }
+
+        @Override
+        public void flagChanged(int x, int y) {
+            if (flagCount == flags.length)
+                flags = Arrays.copyOf(flags, flagCount * 2);
+            flags[flagCount++] = game.board.index(x, y);
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            process();
+        }
+
+        // play the requests that have fully arrived while there is room for their responses, then send them
+        void process() throws IOException {
+            in.flip();
+            while (!generating && in.hasRemaining() && out.position() < MAX_PENDING_OUTPUT) {
+                int size = GameProtocol.requestSize(in);
+                if (size < 0)
+                    throw new IOException("unknown request type " + in.get(in.position()));
+                if (in.remaining() < size)
+                    break;
+                // the first step makes the board, on a generator. the step itself is played once it is made
+                if (in.get(in.position()) == GameProtocol.STEP && game != null && !game.clickedYet)
+                    generate(in.getInt(in.position() + 1));
+                else
+                    handle();
+            }
+            in.compact();
+            write();
+        }
+
+        // play one request, and queue its response
+        private void handle() {
+            byte type = in.get();
+            requests.incrementAndGet();
+            changedCount = 0;
+            flagCount = 0;
+
+            if (type == GameProtocol.NEW_GAME) {
+                int w = in.getShort() & 0xFFFF, h = in.getShort() & 0xFFFF, bombs = in.getInt();
+                int radars = in.get() & 0xFF, rockets = in.get() & 0xFF;
+                boolean noGuess = (in.get() & 1) != 0;
+                if (w < 1 || h < 1 || (long) w * h > GameProtocol.MAX_CELLS)
+                    throw new IllegalArgumentException("cannot host a " + w + "x" + h + " board");
+                if (game != null)
+                    game.removeListener(this);
+                game = new BoardManager(w, h, bombs, radars, rockets);
+                game.noGuess = noGuess;
+                game.addListener(this);
+                respond(0);
+                return;
+            }
+
+            int cell = in.getInt();
+            if (game == null || cell < 0 || cell >= game.board.size())
+                throw new IllegalArgumentException("no tile " + cell);
+            int x = cell / game.h, y = cell % game.h;
+            int result = GameProtocol.STEP == type ? game.stepOnTile(x, y) : 0;
+            if (type == GameProtocol.FLAG)
+                game.flagTile(x, y);
+
+            respond(result);
+        }
+
+        private void generate(int cell) {
+            if (cell < 0 || cell >= game.board.size())
+                throw new IllegalArgumentException("no tile " + cell);
+            BoardManager game = this.game;
+            int x = cell / game.h, y = cell % game.h;
+            generating = true;
+            generators.execute(() -> {
+                try {
+                    game.clickedYet = true;
+                    game.createBoard(x, y);
+                } catch (RuntimeException e) {
+                    generateFailure = e;
+                }
+                worker.generated(this);
+            });
+        }
+
+        // back on the worker, with the board made
+        void resume() throws IOException {
+            generating = false;
+            if (generateFailure != null)
+                throw generateFailure;
+            if (key.isValid())
+                process();
+        }
+
+        private void respond(int result) {
+            int status = result | (game.gameOver ? GameProtocol.GAME_OVER : 0) | (game.won ? GameProtocol.WON : 0);
+            RevealDelta revealed = game.getRevealed();
+            int size = GameProtocol.maxResponseSize(revealed.size() + changedCount, flagCount);
+            if (out.remaining() < size) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                out.flip();
+                out = bigger.put(out);
+            }
+            GameProtocol.putResponse(out, status, game, revealed, changed, changedCount, flags, flagCount);
+        }
+
+        // send what can be sent without blocking, and wait to be writable for the rest. reading stops while too much
+        // is waiting to be sent
+        void write() throws IOException {
+            out.flip();
+            bytesOut.addAndGet(channel.write(out));
+            out.compact();
+            if (key.isValid())
+                key.interestOps((out.position() < MAX_PENDING_OUTPUT && !generating ? SelectionKey.OP_READ : 0)
+                        | (out.position() > 0 ? SelectionKey.OP_WRITE : 0));
+        }
+
+        // the output drained, so play the requests that were left waiting for room
+        void writable() throws IOException {
+            write();
+            if (key.isValid() && !generating && out.position() < MAX_PENDING_OUTPUT && in.position() > 0)
+                process();
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            sessions.decrementAndGet();
+        }
+    }
+
+    // runs a selector over its share of the connections
+    private final class Worker implements Runnable {
+        final Selector selector;
+        final ConcurrentLinkedQueue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Session> generated = new ConcurrentLinkedQueue<>();
+
+        Worker() throws IOException {
+            selector = Selector.open();
+        }
+
+        void add(SocketChannel channel) {
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        // called by a generator when the board of a session is made
+        void generated(Session session) {
+            this.generated.add(session);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = added.poll()) != null) {
+                        channel.configureBlocking(false);
+                        Session session = new Session(channel, this);
+                        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                        sessions.incrementAndGet();
+                    }
+                    Session session;
+                    while ((session = generated.poll()) != null) {
+                        if (!session.key.isValid())
+                            continue; // closed while its board was made
+                        try {
+                            session.resume();
+                        } catch (IOException | RuntimeException e) {
+                            session.close();
+                        }
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        session = (Session) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable())
+                                session.read();
+                            if (key.isValid() && key.isWritable())
+                                session.writable();
+                        } catch (IOException | RuntimeException e) {
+                            // a broken or misbehaving client only loses its own game
+                            session.close();
+                        }
+                    }
+                } catch (ClosedChannelException e) {
+                    // the channel closed while being added
+                } catch (ClosedSelectorException e) {
+                    return; // the server was closed
+                } catch (IOException e) {
+                    if (running)
+                        System.out.println("Game server worker failed: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Start serving.
+     * @param port The port to listen on, or 0 for any free port, see {@link #getPort()}.
+     * @param threads How many worker threads share the connections.
+     */
+    public GameServer(int port, int threads) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+
+        generators = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "game server generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+            Thread thread = new Thread(workers[i], "game server worker " + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        acceptor = new Thread(() -> {
+            int next = 0;
+            while (running) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    channel.socket().setTcpNoDelay(true);
+                    workers[next].add(channel);
+                    next = (next + 1) % workers.length;
+                } catch (IOException e) {
+                    if (running)
+                        System.out.println("Game server could not accept: " + e.getMessage());
+                }
+            }
+        }, "game server acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /** @return How many connections are open. */
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    /** @return How many requests have been played. */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (Worker worker : workers)
+            worker.selector.close();
+        generators.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameServer server = new GameServer(port, threads);
+        System.out.println("Serving games on port " + server.getPort() + " with " + threads + " threads");
+        while (true) {
+            long before = server.getRequests();
+            Thread.sleep(5000);
+            System.out.printf("%d sessions, %.0f requests/s%n", server.getSessions(),
+                    (server.getRequests() - before) / 5.0);
+        }
+    }
+}
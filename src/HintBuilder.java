@@ -0,0 +1,97 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills in the bomb hints of a {@link PackedBoard}, without allocating anything per tile.
+ * Tiles that hold the counted value themselves get a hint of 0.
+ */
+public class HintBuilder {
+
+    // boards with fewer rows than this per task are not split any further
+    private static final int MIN_ROWS_PER_TASK = 64;
+
+    /**
+     * Count the neighbors of every tile in one pass, by having each copy of {@code value} increment its neighbors.
+     * @param board The board to write the hints into.
+     * @param value The tile to count, usually {@link BoardManager#BOARD_BOMB}.
+     */
+    public static void build(PackedBoard board, int value) {
+        int w = board.w;
+        int h = board.h;
+        for (int i = 0; i < board.size(); i++) {
+            board.setHint(i, 0);
+        }
+
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                if (board.getTile(board.index(x, y)) != value)
+                    continue;
+
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++) {
+                    for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, h - 1); j++) {
+                        int neighbor = board.index(i, j);
+                        if (board.getTile(neighbor) != value)
+                            board.setHint(neighbor, board.getHint(neighbor) + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #build(PackedBoard, int)}, but splits the rows across the common {@link ForkJoinPool}.
+     * Every tile sums its own 3x3 neighborhood, so each task only writes to its own rows.
+     * @param board The board to write the hints into.
+     * @param value The tile to count, usually {@link BoardManager#BOARD_BOMB}.
+     */
+    public static void buildParallel(PackedBoard board, int value) {
+        ForkJoinPool.commonPool().invoke(new RowTask(board, value, 0, board.w));
+    }
+
+    // write the hints of rows [fromX, toX)
+    private static void buildRows(PackedBoard board, int value, int fromX, int toX) {
+        int w = board.w;
+        int h = board.h;
+        for (int x = fromX; x < toX; x++) {
+            for (int y = 0; y < h; y++) {
+                int index = board.index(x, y);
+                if (board.getTile(index) == value) {
+                    board.setHint(index, 0);
+                    continue;
+                }
+
+                int count = 0;
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++) {
+                    for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, h - 1); j++) {
+                        if (board.getTile(board.index(i, j)) == value)
+                            count++;
+                    }
+                }
+                board.setHint(index, count);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static class RowTask extends RecursiveAction {
+        private final PackedBoard board;
+        private final int value, fromX, toX;
+
+        RowTask(PackedBoard board, int value, int fromX, int toX) {
+            this.board = board;
+            this.value = value;
+            this.fromX = fromX;
+            this.toX = toX;
+        }
+
+        @Override
+        protected void compute() {
+            if (toX - fromX <= MIN_ROWS_PER_TASK) {
+                buildRows(board, value, fromX, toX);
+                return;
+            }
+            int mid = (fromX + toX) >>> 1;
+            invokeAll(new RowTask(board, value, fromX, mid), new RowTask(board, value, mid, toX));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets that grow with the value, like HdrHistogram, so percentiles stay within about 3% of the
+ * real value from nanoseconds up to minutes, in a fixed 16 KB.
+ * <p>
+ * Values below {@code SUB_BUCKETS} get a bucket each. Past that, every power of 2 is split into
+ * {@code SUB_BUCKETS / 2} equal buckets. Recording is one atomic increment, so any number of threads can record at
+ * once.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = HALF * (64 - SUB_BITS) + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(value, 0)));
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return HALF * shift + (int) (value >>> shift);
+    }
+
+    // the middle of the values a bucket holds
+    private static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / HALF - 1;
+        long low = (long) (bucket - HALF * shift) << shift;
+        return low + (1L << shift) / 2;
+    }
+
+    /** @return How many values were recorded. */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @param percentile From 0 to 100.
+     * @return The value at or below which that share of the values are, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return valueOf(i);
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    public long max() {
+        for (int i = BUCKETS - 1; i >= 0; i--)
+            if (counts.get(i) != 0)
+                return valueOf(i);
+        return 0;
+    }
+
+    /**
+     * Move everything recorded so far into another histogram, and start over. Values recorded by other threads at the
+     * same time end up in one or the other.
+     */
+    public void drainTo(LatencyHistogram into) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.getAndSet(i, 0);
+            if (count != 0)
+                into.counts.addAndGet(i, count);
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+    }
+}
@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Plays games against a {@link GameServer} over many connections at once, and reports the actions per second and the
+ * latency of each request, from sending it to reading its whole response.
+ * <p>
+ * Each connection keeps one request in flight. It knows the board only from the reveals it is sent, and steps on, or
+ * now and then flags, a random tile it has not seen yet, starting a new game when one ends. The connections are shared
+ * out over a few threads, each with its own {@link Selector}.
+ * <p>
+ * Usage: {@code java LoadGenerator [connections] [seconds] [size] [bombs] [threads] [port]}. Without a port, a server
+ * is started in this process on a free port.
+ */
+public class LoadGenerator {
+
+    private static final int FLAG_ONE_IN = 10; // how often an action is a flag instead of a step
+
+    // one connection, playing one game at a time
+    private static final class Client implements GameProtocol.ResponseReader {
+        final SocketChannel channel;
+        final ByteBuffer out = ByteBuffer.allocate(GameProtocol.NEW_GAME_SIZE);
+        ByteBuffer in = ByteBuffer.allocate(4096);
+        final int size, bombs;
+        final long[] seen; // tiles revealed or flagged, as a bitset
+        boolean fresh; // out holds a request that has not started sending
+        long sentAt;
+
+        Client(SocketChannel channel, int size, int bombs) {
+            this.channel = channel;
+            this.size = size;
+            this.bombs = bombs;
+            seen = new long[(size * size + 63) / 64];
+        }
+
+        @Override
+        public void tile(int cell, int tile, int hint) {
+            seen[cell >>> 6] |= 1L << cell;
+        }
+
+        @Override
+        public void flag(int cell, int flag) {
+            if (flag == 1)
+                seen[cell >>> 6] |= 1L << cell;
+            else
+                seen[cell >>> 6] &= ~(1L << cell);
+        }
+
+        void newGame() {
+            Arrays.fill(seen, 0);
+            out.clear();
+            GameProtocol.putNewGame(out, size, size, bombs, 5, 3, false);
+            out.flip();
+            fresh = true;
+        }
+
+        // the next action, on a tile that has not been seen, or a new game if they all have
+        void nextAction(SplittableRandom random) {
+            int cells = size * size;
+            int cell = random.nextInt(cells);
+            for (int tries = 0; tries < cells && (seen[cell >>> 6] & (1L << cell)) != 0; tries++)
+                cell = cell + 1 == cells ? 0 : cell + 1;
+            if ((seen[cell >>> 6] & (1L << cell)) != 0) {
+                newGame();
+                return;
+            }
+            out.clear();
+            GameProtocol.putAction(out, random.nextInt(FLAG_ONE_IN) == 0 ? GameProtocol.FLAG : GameProtocol.STEP, cell);
+            out.flip();
+            fresh = true;
+        }
+    }
+
+    // the connections of one thread, and the latencies they saw
+    private static final class Driver implements Runnable {
+        final Selector selector;
+        final SplittableRandom random;
+        final long endNanos;
+        long[] latencies = new long[1 << 16];
+        int count;
+        long bytesIn;
+
+        Driver(Selector selector, long seed, long endNanos) {
+            this.selector = selector;
+            this.random = new SplittableRandom(seed);
+            this.endNanos = endNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (SelectionKey key : selector.keys())
+                    send((Client) key.attachment(), key);
+
+                while (System.nanoTime() < endNanos) {
+                    selector.select(100);
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Client client = (Client) key.attachment();
+                        if (key.isWritable())
+                            send(client, key);
+                        if (key.isValid() && key.isReadable())
+                            receive(client, key);
+                    }
+                }
+                for (SelectionKey key : selector.keys())
+                    key.channel().close();
+                selector.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // write the pending request, waiting to be writable if it does not all fit
+        private void send(Client client, SelectionKey key) throws IOException {
+            if (client.fresh) {
+                client.fresh = false;
+                client.sentAt = System.nanoTime();
+            }
+            client.channel.write(client.out);
+            key.interestOps(client.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void receive(Client client, SelectionKey key) throws IOException {
+            ByteBuffer in = client.in;
+            int read = client.channel.read(in);
+            if (read < 0)
+                throw new IOException("the server closed a connection");
+            bytesIn += read;
+
+            in.flip();
+            if (in.remaining() < 4 || in.remaining() < 4 + in.getInt(in.position())) {
+                // wait for the rest, growing the buffer if the response will not fit
+                if (in.remaining() >= 4 && 4 + in.getInt(in.position()) > in.capacity())
+                    client.in = ByteBuffer.allocate(4 + in.getInt(in.position())).put(in);
+                else
+                    in.compact();
+                return;
+            }
+
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = System.nanoTime() - client.sentAt;
+
+            int length = in.getInt();
+            int end = in.position() + length;
+            int status = GameProtocol.readResponse(in, client);
+            in.position(end);
+            in.compact();
+
+            if ((status & GameProtocol.GAME_OVER) != 0)
+                client.newGame();
+            else
+                client.nextAction(random);
+            send(client, key);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int bombs = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Math.max(1, cores / 2);
+
+        GameServer server = null;
+        int port;
+        if (args.length > 5) {
+            port = Integer.parseInt(args[5]);
+        } else {
+            server = new GameServer(0, Math.max(1, cores / 2));
+            port = server.getPort();
+        }
+
+        // connect everything first, so connecting is not timed
+        Selector[] selectors = new Selector[threads];
+        for (int i = 0; i < threads; i++)
+            selectors[i] = Selector.open();
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+            Client client = new Client(channel, size, bombs);
+            client.newGame();
+            channel.register(selectors[i % threads], SelectionKey.OP_WRITE, client);
+        }
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        Driver[] drivers = new Driver[threads];
+        Thread[] running = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            drivers[i] = new Driver(selectors[i], i, end);
+            running[i] = new Thread(drivers[i], "load generator " + i);
+            running[i].start();
+        }
+        for (Thread thread : running)
+            thread.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        long bytesIn = 0;
+        for (Driver driver : drivers) {
+            total += driver.count;
+            bytesIn += driver.bytesIn;
+        }
+        long[] latencies = new long[total];
+        int k = 0;
+        for (Driver driver : drivers) {
+            System.arraycopy(driver.latencies, 0, latencies, k, driver.count);
+            k += driver.count;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%d connections, %dx%d boards with %d bombs, %d threads, %.1f s%n", connections, size, size,
+                bombs, threads, elapsed);
+        if (total == 0) {
+            System.out.println("no responses");
+        } else {
+            System.out.printf("%d actions, %.0f actions/s, %.1f bytes per response%n", total, total / elapsed,
+                    bytesIn / (double) total);
+            System.out.printf("latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", latencies[total / 2] / 1e6,
+                    latencies[(int) (total * 0.99)] / 1e6, latencies[total - 1] / 1e6);
+        }
+        if (server != null)
+            server.close();
+    }
+}
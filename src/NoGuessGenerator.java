@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds boards that can be won from the first click by logic alone, with no guessing.
+ * <p>
+ * Candidate boards are made the normal way from seeds derived from the game's seed, and each one is played out by a
+ * {@link Solver} that only makes proven moves. A candidate passes if the solver wins it. Candidates are tried on every
+ * core at once, and the lowest numbered one that passes is used, so the board for a seed and first click is the same
+ * no matter how many threads there are or which finishes first. Interrupting the calling thread stops every candidate
+ * after the one it is on, so a generation nobody wants any more gives its threads back.
+ * <p>
+ * The time every generation takes is recorded, see {@link #getLatencyReport()}.
+ */
+public class NoGuessGenerator {
+
+    public static final int MAX_ATTEMPTS = 5_000;
+    private static final int LATENCY_SAMPLES = 4096; // the latest generations are kept for the percentiles
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService pool = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "no-guess generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // latency of every generation, and how many candidates it took
+    private static final long[] latencies = new long[LATENCY_SAMPLES];
+    private static long generations, failures, totalAttempts, totalNanos, maxNanos;
+
+    /**
+     * Make a board that can be solved without guessing.
+     * @param boardManager The game to make it for. Only its size, bomb count and seed are used.
+     * @param firstClickX The x of the first click.
+     * @param firstClickY The y of the first click.
+     * @param threads How many candidates to try at once.
+     * @return The board, with its hints built, or null if none of the {@link #MAX_ATTEMPTS} candidates passed, or the
+     * calling thread was interrupted.
+     */
+    public static PackedBoard generate(BoardManager boardManager, int firstClickX, int firstClickY, int threads) {
+        long start = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger best = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicInteger attempts = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        AtomicBoolean stop = new AtomicBoolean(); // set once the caller stops waiting
+
+        Runnable worker = () -> {
+            Solver solver = new Solver(null, Solver.defaultStrategies());
+            while (true) {
+                int candidate = next.getAndIncrement();
+                // candidates after one that passed can never win
+                if (candidate >= MAX_ATTEMPTS || candidate > best.get() || stop.get() || caller.isInterrupted())
+                    return;
+                attempts.incrementAndGet();
+                BoardManager trial = candidate(boardManager, candidate);
+                if (solvable(trial, firstClickX, firstClickY, solver))
+                    best.accumulateAndGet(candidate, Math::min);
+            }
+        };
+
+        if (threads <= 1) {
+            worker.run();
+        } else {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                futures.add(pool.submit(worker));
+            try {
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException e) {
+                stop.set(true);
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                throw new RuntimeException("no-guess generation failed", e);
+            }
+        }
+        if (caller.isInterrupted())
+            return null;
+
+        PackedBoard board = null;
+        if (best.get() != Integer.MAX_VALUE) {
+            // make the winner again from its seed, untouched by the solver
+            BoardManager winner = candidate(boardManager, best.get());
+            winner.createBoard(firstClickX, firstClickY);
+            board = winner.board;
+        }
+        record(System.nanoTime() - start, attempts.get(), board != null);
+        return board;
+    }
+
+    /**
+     * Make a board that can be solved without guessing, trying candidates on every core.
+     * @see #generate(BoardManager, int, int, int)
+     */
+    public static PackedBoard generate(BoardManager boardManager, int firstClickX, int firstClickY) {
+        return generate(boardManager, firstClickX, firstClickY, THREADS);
+    }
+
+    // the game for a candidate, with a seed that depends only on the game's seed and the candidate number
+    private static BoardManager candidate(BoardManager boardManager, int candidate) {
+        long seed = new SplittableRandom(boardManager.seed + candidate * 0x9E3779B97F4A7C15L).nextLong();
+        return new BoardManager(boardManager.w, boardManager.h, boardManager.bombCount, boardManager.radarCount,
+                boardManager.rocketCount, seed);
+    }
+
+    /**
+     * Play a game out with only proven moves.
+     * @return Whether the solver won it without ever getting stuck.
+     */
+    public static boolean solvable(BoardManager boardManager, int firstClickX, int firstClickY, Solver solver) {
+        solver.setBoard(boardManager);
+        boardManager.stepOnTile(firstClickX, firstClickY);
+        while (!boardManager.gameOver) {
+            if (!solver.solve())
+                return false;
+            for (int mine : solver.getMines())
+                boardManager.flagTile(mine / boardManager.h, mine % boardManager.h);
+            for (int safe : solver.getSafe())
+                if (!boardManager.board.isDiscovered(safe)) // an earlier step may have opened it already
+                    boardManager.stepOnTile(safe / boardManager.h, safe % boardManager.h);
+        }
+        return boardManager.won;
+    }
+
+    private static synchronized void record(long nanos, int attempts, boolean found) {
+        latencies[(int) (generations % LATENCY_SAMPLES)] = nanos;
+        generations++;
+        if (!found)
+            failures++;
+        totalAttempts += attempts;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * @return The number of generations, how many found nothing, candidates per generation, and latency percentiles.
+     */
+    public static synchronized String getLatencyReport() {
+        int samples = (int) Math.min(generations, LATENCY_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return String.format("generations: %d, failed: %d, avg candidates: %.1f%n"
+                + "latency mean: %.2f ms, p50: %.2f ms, p90: %.2f ms, p99: %.2f ms, max: %.2f ms",
+                generations, failures, generations == 0 ? 0 : totalAttempts / (double) generations,
+                generations == 0 ? 0 : totalNanos / 1e6 / generations, percentile(sorted, 0.5) / 1e6,
+                percentile(sorted, 0.9) / 1e6, percentile(sorted, 0.99) / 1e6, maxNanos / 1e6);
+    }
+
+    // nearest rank percentile of sorted samples
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+}
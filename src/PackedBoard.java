@@ -0,0 +1,91 @@
+/**
+ * Flat storage for every tile of a board.
+ * Each tile is one {@code short}, with the tile type, bomb hint, discovered state and flag state packed into bit fields:
+ * <pre>
+ * bits 0-1  tile  (BoardManager.BOARD_EMPTY, BOARD_BOMB, BOARD_RADAR, BOARD_ROCKET)
+ * bits 2-5  bomb hint (0 - 8)
+ * bit  6    discovered
+ * bits 7-8  flag  (0 - no flag, 1 - flagged, 2 - question mark)
+ * </pre>
+ * Tiles are addressed by packed indices ({@code x * h + y}), the same ones {@link FloodFill} uses.
+ */
+public class PackedBoard {
+
+    private static final int TILE_MASK = 0b11;
+    private static final int HINT_SHIFT = 2;
+    private static final int HINT_MASK = 0b1111 << HINT_SHIFT;
+    private static final int DISCOVERED_BIT = 1 << 6;
+    private static final int FLAG_SHIFT = 7;
+    private static final int FLAG_MASK = 0b11 << FLAG_SHIFT;
+
+    public final int w, h;
+    private final short[] cells;
+
+    /**
+     * Create an empty, undiscovered and unflagged board.
+     * @param w The number of rows.
+     * @param h The number of columns.
+     */
+    public PackedBoard(int w, int h) {
+        this.w = w;
+        this.h = h;
+        this.cells = new short[w * h];
+    }
+
+    /**
+     * @return The number of tiles on the board.
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    public int index(int x, int y) {
+        return x * h + y;
+    }
+
+    /**
+     * @return Every bit field of a tile at once, to save and restore tiles wholesale.
+     */
+    public short getRaw(int index) {
+        return cells[index];
+    }
+
+    public void setRaw(int index, short raw) {
+        cells[index] = raw;
+    }
+
+    public int getTile(int index) {
+        return cells[index] & TILE_MASK;
+    }
+
+    public void setTile(int index, int tile) {
+        cells[index] = (short) ((cells[index] & ~TILE_MASK) | tile);
+    }
+
+    public int getHint(int index) {
+        return (cells[index] & HINT_MASK) >>> HINT_SHIFT;
+    }
+
+    public void setHint(int index, int hint) {
+        cells[index] = (short) ((cells[index] & ~HINT_MASK) | (hint << HINT_SHIFT));
+    }
+
+    public boolean isDiscovered(int index) {
+        return (cells[index] & DISCOVERED_BIT) != 0;
+    }
+
+    public void setDiscovered(int index, boolean discovered) {
+        if (discovered)
+            cells[index] |= DISCOVERED_BIT;
+        else
+            cells[index] &= ~DISCOVERED_BIT;
+    }
+
+    public int getFlag(int index) {
+        return (cells[index] & FLAG_MASK) >>> FLAG_SHIFT;
+    }
+
+    public void setFlag(int index, int flag) {
+        cells[index] = (short) ((cells[index] & ~FLAG_MASK) | (flag << FLAG_SHIFT));
+    }
+}
@@ -0,0 +1,400 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out how likely every hidden tile is to be a bomb, for when nothing can be proven and the player has to guess.
+ * <p>
+ * The frontier (hidden tiles next to discovered ones) is split into components that share no constraints. Each
+ * component is counted by a dynamic program over its tiles in order: the state after deciding a prefix of the tiles is
+ * just the number of bombs placed in each constraint that is still open, so prefixes that end in the same state are
+ * merged (memoized) instead of being enumerated one by one. Running it forwards and backwards gives, for every number
+ * of bombs in the component, how many layouts there are, and how many of them have a bomb on each tile.
+ * <p>
+ * The components are then combined with the tiles away from the frontier, weighting each total number of frontier
+ * bombs by how many ways the rest of the bombs left can be spread over those other tiles.
+ */
+public class ProbabilityEngine {
+
+    private static final int MAX_STATES = 50_000; // per layer of a component, past this it falls back to the density
+
+    /**
+     * The open constraint counts after a prefix of a component's tiles, used as a memo key.
+     */
+    private static final class State {
+        final byte[] placed;
+        final int hash;
+
+        State(byte[] placed) {
+            this.placed = placed;
+            this.hash = Arrays.hashCode(placed);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof State && Arrays.equals(placed, ((State) other).placed);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The counts of one component: layouts[m] layouts use m bombs, and cellMines[i][m] of them put a bomb on tile i.
+     */
+    private static final class Component {
+        int[] cells;
+        double[] layouts;
+        double[][] cellMines;
+    }
+
+    private double[] probabilities = new double[0];
+    private int bestGuess = -1;
+
+    /**
+     * Work out the bomb probability of every hidden tile.
+     * @param solver A solver whose constraints are built for the current board, see {@link Solver#buildConstraints()}.
+     * @return The probability of every tile, by packed index, or -1 for tiles that are discovered or flagged.
+     */
+    public double[] compute(Solver solver) {
+        int size = solver.getWidth() * solver.getHeight();
+        if (probabilities.length != size)
+            probabilities = new double[size];
+        Arrays.fill(probabilities, -1);
+        bestGuess = -1;
+
+        List<Solver.Constraint> constraints = solver.getConstraints();
+        int minesLeft = solver.getMinesLeft();
+        if (minesLeft < 0)
+            return probabilities; // more flags than bombs, so the visible state is inconsistent
+
+        // group the constraints into components that share tiles
+        int[] parent = new int[size];
+        boolean[] frontier = new boolean[size];
+        for (Solver.Constraint constraint : constraints) {
+            for (int cell : constraint.cells) {
+                parent[cell] = cell;
+                frontier[cell] = true;
+            }
+        }
+        for (Solver.Constraint constraint : constraints) {
+            for (int i = 1; i < constraint.cells.length; i++)
+                union(parent, constraint.cells[0], constraint.cells[i]);
+        }
+        HashMap<Integer, List<Solver.Constraint>> groups = new HashMap<>();
+        for (Solver.Constraint constraint : constraints) {
+            groups.computeIfAbsent(find(parent, constraint.cells[0]), k -> new ArrayList<>()).add(constraint);
+        }
+
+        // count each component. ones that are too wide are treated like tiles away from the frontier
+        ArrayList<Component> components = new ArrayList<>();
+        for (List<Solver.Constraint> group : groups.values()) {
+            Component component = count(group, minesLeft);
+            if (component != null) {
+                components.add(component);
+            } else {
+                for (Solver.Constraint constraint : group)
+                    for (int cell : constraint.cells)
+                        frontier[cell] = false;
+            }
+        }
+
+        int floating = 0;
+        for (int index = 0; index < size; index++) {
+            if (solver.isHidden(index) && !frontier[index])
+                floating++;
+        }
+
+        // weight[k]: ways to put the other minesLeft - k bombs on the floating tiles, relative to the largest
+        double[] logFactorial = new double[floating + 1];
+        for (int i = 1; i <= floating; i++)
+            logFactorial[i] = logFactorial[i - 1] + Math.log(i);
+        double[] logWeight = new double[minesLeft + 1];
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k <= minesLeft; k++) {
+            int rest = minesLeft - k;
+            logWeight[k] = rest > floating ? Double.NEGATIVE_INFINITY
+                    : logFactorial[floating] - logFactorial[rest] - logFactorial[floating - rest];
+            maxLog = Math.max(maxLog, logWeight[k]);
+        }
+        double[] weight = new double[minesLeft + 1];
+        for (int k = 0; k <= minesLeft; k++)
+            weight[k] = Math.exp(logWeight[k] - maxLog);
+
+        // prefix and suffix convolutions, so each component can be combined with all of the others
+        int n = components.size();
+        double[][] prefix = new double[n + 1][], suffix = new double[n + 1][];
+        prefix[0] = new double[] { 1 };
+        suffix[n] = new double[] { 1 };
+        for (int c = 0; c < n; c++)
+            prefix[c + 1] = convolve(prefix[c], components.get(c).layouts, minesLeft);
+        for (int c = n - 1; c >= 0; c--)
+            suffix[c] = convolve(components.get(c).layouts, suffix[c + 1], minesLeft);
+
+        double[] all = prefix[n];
+        double total = 0, floatingMines = 0;
+        for (int k = 0; k < all.length; k++) {
+            total += all[k] * weight[k];
+            floatingMines += all[k] * weight[k] * (minesLeft - k);
+        }
+        if (total == 0)
+            return probabilities; // the visible state is inconsistent, like with a wrong flag
+
+        for (int c = 0; c < n; c++) {
+            Component component = components.get(c);
+            double[] others = convolve(prefix[c], suffix[c + 1], minesLeft);
+            for (int i = 0; i < component.cells.length; i++) {
+                double mine = 0;
+                double[] cellMines = component.cellMines[i];
+                for (int m = 0; m < cellMines.length; m++) {
+                    if (cellMines[m] == 0)
+                        continue;
+                    for (int k = 0; k < others.length && m + k <= minesLeft; k++)
+                        mine += cellMines[m] * others[k] * weight[m + k];
+                }
+                probabilities[component.cells[i]] = mine / total;
+            }
+        }
+
+        double floatingProbability = floating == 0 ? 0 : floatingMines / total / floating;
+        double best = Double.MAX_VALUE;
+        for (int index = 0; index < size; index++) {
+            if (!solver.isHidden(index))
+                continue;
+            if (!frontier[index])
+                probabilities[index] = floatingProbability;
+            if (probabilities[index] < best) {
+                best = probabilities[index];
+                bestGuess = index;
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * @return The packed index of the hidden tile least likely to be a bomb in the last {@link #compute}, or -1.
+     */
+    public int getBestGuess() {
+        return bestGuess;
+    }
+
+    // count the layouts of one component, or return null if it has too many states
+    private static Component count(List<Solver.Constraint> group, int minesLeft) {
+        int k = group.size();
+
+        // order the tiles breadth first through the constraints, so each constraint is open for as short as possible
+        HashMap<Integer, List<Integer>> constraintsOf = new HashMap<>();
+        for (int c = 0; c < k; c++) {
+            for (int cell : group.get(c).cells)
+                constraintsOf.computeIfAbsent(cell, x -> new ArrayList<>()).add(c);
+        }
+        int n = constraintsOf.size();
+        int[] cells = new int[n];
+        HashMap<Integer, Integer> position = new HashMap<>();
+        boolean[] queued = new boolean[k];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        queued[0] = true;
+        while (!queue.isEmpty()) {
+            int c = queue.poll();
+            for (int cell : group.get(c).cells) {
+                if (position.containsKey(cell))
+                    continue;
+                position.put(cell, position.size());
+                cells[position.size() - 1] = cell;
+                for (int other : constraintsOf.get(cell)) {
+                    if (!queued[other]) {
+                        queued[other] = true;
+                        queue.add(other);
+                    }
+                }
+            }
+        }
+
+        // per constraint: bombs needed, first and last tile; per tile: the constraints it is in
+        int[] target = new int[k], first = new int[k], last = new int[k];
+        int[][] touching = new int[n][];
+        for (int c = 0; c < k; c++) {
+            target[c] = group.get(c).mines;
+            first[c] = n;
+            last[c] = -1;
+            for (int cell : group.get(c).cells) {
+                int p = position.get(cell);
+                first[c] = Math.min(first[c], p);
+                last[c] = Math.max(last[c], p);
+            }
+        }
+        int[][] remaining = new int[k][]; // remaining[c][i]: tiles of c after tile i
+        for (int c = 0; c < k; c++) {
+            remaining[c] = new int[n];
+            for (int cell : group.get(c).cells) {
+                int p = position.get(cell);
+                for (int i = 0; i < p; i++)
+                    remaining[c][i]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            List<Integer> of = constraintsOf.get(cells[i]);
+            touching[i] = new int[of.size()];
+            for (int j = 0; j < of.size(); j++)
+                touching[i][j] = of.get(j);
+        }
+
+        // the open constraints at each boundary, before tile i is decided
+        int[][] open = new int[n + 1][];
+        for (int i = 0; i <= n; i++) {
+            int count = 0;
+            for (int c = 0; c < k; c++)
+                if (first[c] < i && last[c] >= i)
+                    count++;
+            open[i] = new int[count];
+            count = 0;
+            for (int c = 0; c < k; c++)
+                if (first[c] < i && last[c] >= i)
+                    open[i][count++] = c;
+        }
+
+        int maxMines = Math.min(n, minesLeft);
+        State empty = new State(new byte[0]);
+
+        // forwards: how many ways to reach each state with each number of bombs so far
+        ArrayList<HashMap<State, double[]>> forward = new ArrayList<>();
+        HashMap<State, double[]> layer = new HashMap<>();
+        layer.put(empty, unit(maxMines));
+        forward.add(layer);
+        int[] placed = new int[k];
+        for (int i = 0; i < n; i++) {
+            HashMap<State, double[]> next = new HashMap<>();
+            for (Map.Entry<State, double[]> entry : layer.entrySet()) {
+                for (int value = 0; value <= 1; value++) {
+                    State to = step(entry.getKey(), value, i, open, touching, target, remaining, placed);
+                    if (to != null)
+                        addShifted(next.computeIfAbsent(to, s -> new double[maxMines + 1]), entry.getValue(), value);
+                }
+            }
+            if (next.size() > MAX_STATES)
+                return null;
+            forward.add(next);
+            layer = next;
+        }
+
+        // backwards: how many ways to finish from each reachable state with each number of bombs still to place
+        ArrayList<HashMap<State, double[]>> backward = new ArrayList<>();
+        for (int i = 0; i <= n; i++)
+            backward.add(null);
+        HashMap<State, double[]> end = new HashMap<>();
+        end.put(empty, unit(maxMines));
+        backward.set(n, end);
+        Component component = new Component();
+        component.cells = cells;
+        component.cellMines = new double[n][maxMines + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            HashMap<State, double[]> after = backward.get(i + 1);
+            HashMap<State, double[]> here = new HashMap<>();
+            for (Map.Entry<State, double[]> entry : forward.get(i).entrySet()) {
+                double[] ways = new double[maxMines + 1];
+                for (int value = 0; value <= 1; value++) {
+                    State to = step(entry.getKey(), value, i, open, touching, target, remaining, placed);
+                    double[] rest = to == null ? null : after.get(to);
+                    if (rest == null)
+                        continue;
+                    addShifted(ways, rest, value);
+
+                    // every layout through this state with a bomb on tile i
+                    if (value == 1) {
+                        double[] before = entry.getValue();
+                        for (int a = 0; a <= maxMines; a++) {
+                            if (before[a] == 0)
+                                continue;
+                            for (int b = 0; a + 1 + b <= maxMines; b++)
+                                component.cellMines[i][a + 1 + b] += before[a] * rest[b];
+                        }
+                    }
+                }
+                here.put(entry.getKey(), ways);
+            }
+            backward.set(i, here);
+        }
+        component.layouts = backward.get(0).get(empty);
+
+        // scale so the biggest count is 1, which keeps the products of many components in range
+        double max = 0;
+        for (double layouts : component.layouts)
+            max = Math.max(max, layouts);
+        if (max > 0) {
+            for (int m = 0; m <= maxMines; m++)
+                component.layouts[m] /= max;
+            for (double[] cellMines : component.cellMines)
+                for (int m = 0; m <= maxMines; m++)
+                    cellMines[m] /= max;
+        }
+        return component;
+    }
+
+    // decide tile i as value from a state before it, or return null if that breaks a constraint
+    private static State step(State from, int value, int i, int[][] open, int[][] touching, int[] target,
+            int[][] remaining, int[] placed) {
+        for (int s = 0; s < open[i].length; s++)
+            placed[open[i][s]] = from.placed[s];
+        for (int c : touching[i]) {
+            if (!contains(open[i], c))
+                placed[c] = 0; // tile i is the first tile of c
+            placed[c] += value;
+            if (placed[c] > target[c] || placed[c] + remaining[c][i] < target[c])
+                return null;
+        }
+
+        byte[] to = new byte[open[i + 1].length];
+        for (int s = 0; s < to.length; s++)
+            to[s] = (byte) placed[open[i + 1][s]];
+        return new State(to);
+    }
+
+    private static boolean contains(int[] array, int value) {
+        for (int element : array)
+            if (element == value)
+                return true;
+        return false;
+    }
+
+    private static double[] unit(int maxMines) {
+        double[] counts = new double[maxMines + 1];
+        counts[0] = 1;
+        return counts;
+    }
+
+    private static void addShifted(double[] into, double[] from, int shift) {
+        for (int m = 0; m + shift < into.length && m < from.length; m++)
+            into[m + shift] += from[m];
+    }
+
+    private static double[] convolve(double[] a, double[] b, int max) {
+        double[] result = new double[Math.min(a.length + b.length - 1, max + 1)];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0)
+                continue;
+            for (int j = 0; j < b.length && i + j < result.length; j++)
+                result[i + j] += a[i] * b[j];
+        }
+        return result;
+    }
+
+    private static int find(int[] parent, int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a), rootB = find(parent, b);
+        if (rootA != rootB)
+            parent[rootA] = rootB;
+    }
+}
@@ -0,0 +1,97 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Times the hot paths of the game. While the debug overlay is on, see {@link #setHistograms(boolean)}, every call is
+ * counted in a {@link LatencyHistogram} that it reads, and while a JDK Flight Recorder recording is running, for
+ * example with {@code java -XX:StartFlightRecording=filename=game.jfr Game}, every call is sent to it as a
+ * {@link SectionEvent}. Otherwise timing a call costs two flag reads, and nothing is shared between threads.
+ * <pre>
+ * long start = Profiler.STEP.begin();
+ * try {
+ *     ...
+ * } finally {
+ *     Profiler.STEP.end(start);
+ * }
+ * </pre>
+ */
+public class Profiler {
+
+    public static final Section PAINT = new Section("paintComponent");
+    public static final Section FOG = new Section("paintFog");
+    public static final Section STEP = new Section("stepOnTile");
+    public static final Section CREATE_BOARD = new Section("createBoard");
+    public static final Section CAVE = new Section("DFS.cave");
+
+    /** Every section, in the order the overlay lists them. */
+    public static final Section[] SECTIONS = { PAINT, FOG, STEP, CREATE_BOARD, CAVE };
+
+    private static volatile boolean histograms; // off by default, see setHistograms
+    private static final EventType EVENT_TYPE = EventType.getEventType(SectionEvent.class);
+
+    /**
+     * Start or stop counting calls in the histograms. They are shared by every thread, so simulator and server threads
+     * stepping on tiles at once would all contend on the same counts if they were always on.
+     */
+    public static void setHistograms(boolean on) {
+        histograms = on;
+    }
+
+    /**
+     * One timed call of a hot path. The time it took is in {@code elapsed}, and the event itself is stamped at the end
+     * of the call, so timing stays a pair of {@link System#nanoTime()} calls when nothing is recording.
+     */
+    @Name("mineswiffer.Section")
+    @Label("Hot Path")
+    @Category("Mineswiffer")
+    @Description("A timed call of one of the game's hot paths")
+    @StackTrace(false)
+    public static class SectionEvent extends Event {
+        @Label("Section")
+        public String section;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        public long elapsed;
+    }
+
+    /**
+     * A hot path, and how long its calls took.
+     */
+    public static class Section {
+        public final String name;
+        public final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Section(String name) {
+            this.name = name;
+        }
+
+        /** @return When the call started, or 0 if nothing is listening. */
+        public long begin() {
+            return histograms || EVENT_TYPE.isEnabled() ? System.nanoTime() : 0;
+        }
+
+        public void end(long start) {
+            if (start == 0)
+                return;
+            long elapsed = System.nanoTime() - start;
+            if (histograms)
+                histogram.record(elapsed);
+
+            if (!EVENT_TYPE.isEnabled())
+                return;
+            SectionEvent event = new SectionEvent();
+            if (event.shouldCommit()) {
+                event.section = name;
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A file of {@link GameRecord}s, written through a {@link FileChannel} and read back through memory mapped windows,
+ * so millions of games can be archived and scanned at disk speed.
+ * <p>
+ * The file starts with a magic number and a version byte, followed by every record as its length and its bytes.
+ * <p>
+ * Usage: {@code java ReplayArchive [file] [games] [size] [bombs]} plays games with the {@link Solver}, archives them,
+ * and times scanning the archive.
+ */
+public class ReplayArchive {
+
+    private static final int MAGIC = 0x4D535752; // "MSWR"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long WINDOW_SIZE = 1 << 30; // how much of the file is mapped at once
+
+    /**
+     * Adds records to the end of an archive, buffering them so each write to the channel is big.
+     * Safe to use from several threads.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /**
+         * Open an archive to add to, creating it if it does not exist.
+         * @throws IOException If the file exists but is not an archive.
+         */
+        public Writer(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                if (channel.size() == 0) {
+                    buffer.putInt(MAGIC).put(VERSION);
+                } else {
+                    checkHeader(channel, path);
+                    channel.position(channel.size());
+                }
+            } catch (IOException | RuntimeException e) {
+                // nothing can close a writer that was never made, so close its channel here
+                channel.close();
+                throw e;
+            }
+        }
+
+        public synchronized void write(GameRecord record) throws IOException {
+            int maxSize = 4 + record.maxEncodedSize();
+            if (buffer.remaining() < maxSize)
+                flush();
+
+            // records too big for the buffer get one of their own
+            ByteBuffer target = buffer.remaining() >= maxSize ? buffer : ByteBuffer.allocate(maxSize);
+            int start = target.position();
+            target.position(start + 4);
+            record.encode(target);
+            target.putInt(start, target.position() - start - 4);
+            if (target != buffer) {
+                target.flip();
+                while (target.hasRemaining())
+                    channel.write(target);
+            }
+        }
+
+        public synchronized void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    /**
+     * Add one record to the end of an archive, creating it if it does not exist.
+     */
+    public static void append(Path path, GameRecord record) throws IOException {
+        try (Writer writer = new Writer(path)) {
+            writer.write(record);
+        }
+    }
+
+    /**
+     * Read every record in an archive, in order, through memory mapped windows of the file.
+     * @param consumer Gets each record.
+     * @return How many records there were.
+     * @throws IOException If the file is not an archive, or a record is cut off.
+     */
+    public static long scan(Path path, Consumer<GameRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            checkHeader(channel, path);
+            long size = channel.size();
+            long position = HEADER_SIZE;
+            long count = 0;
+
+            while (position < size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_SIZE, size - position));
+                while (window.remaining() >= 4) {
+                    int length = window.getInt(window.position());
+                    if (window.remaining() - 4 < length)
+                        break; // it goes past the window, so map the next one from here
+                    ByteBuffer record = window.slice(window.position() + 4, length);
+                    consumer.accept(GameRecord.decode(record));
+                    window.position(window.position() + 4 + length);
+                    count++;
+                }
+                if (window.position() == 0)
+                    throw new IOException("truncated or oversized record at byte " + position + " of " + path);
+                position += window.position();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return Every record in an archive.
+     */
+    public static List<GameRecord> readAll(Path path) throws IOException {
+        ArrayList<GameRecord> records = new ArrayList<>();
+        scan(path, records::add);
+        return records;
+    }
+
+    private static void checkHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+            ;
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+            throw new IOException(path + " is not a replay archive");
+        if (header.get() != VERSION)
+            throw new IOException(path + " is a replay archive of an unknown version");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path path = Paths.get(args.length > 0 ? args[0] : "replays.msr");
+        long games = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int bombs = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+
+        Simulator simulator = new Simulator(size, size, bombs, 5, 3);
+        long start = System.nanoTime();
+        try (Writer writer = new Writer(path)) {
+            simulator.recorder = record -> {
+                try {
+                    writer.write(record);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+            simulator.run(games, Runtime.getRuntime().availableProcessors(), 1,
+                    () -> new Solver(null, Solver.defaultStrategies()));
+        }
+        double playSeconds = (System.nanoTime() - start) / 1e9;
+        long bytes = path.toFile().length();
+
+        long[] actions = new long[1];
+        start = System.nanoTime();
+        long count = scan(path, record -> actions[0] += record.size());
+        double scanSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("played and wrote %d games in %.2f s%n", games, playSeconds);
+        System.out.printf("archive: %d games, %d actions, %d bytes, %.1f bytes per game, %.2f bytes per action%n",
+                count, actions[0], bytes, bytes / (double) count, bytes / (double) actions[0]);
+        System.out.printf("scanned in %.3f s, %.0f games/s, %.1f MB/s%n", scanSeconds, count / scanSeconds,
+                bytes / scanSeconds / 1e6);
+    }
+}
@@ -0,0 +1,285 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Steps backwards and forwards through a {@link GameRecord}, by playing its actions on a {@link BoardManager}.
+ * <p>
+ * A checkpoint is kept after the first action, which makes the board, and then every {@link #INTERVAL} actions.
+ * Each one holds only the tiles that changed since the checkpoint before it, as the XOR of their bit fields, plus the
+ * counters. The engine keeps a copy of the tiles at one checkpoint, and
+ * moves that copy between checkpoints by XORing their diffs in, forwards or backwards. Seeking restores the nearest
+ * checkpoint at or before the target and plays the few actions after it, so it costs one board copy, the diffs passed
+ * over, and at most {@link #INTERVAL} actions, however long the game is.
+ * <p>
+ * Usage: {@code java ReplayEngine [archive]} times scrubbing through the longest game of an archive.
+ */
+public class ReplayEngine {
+
+    public static final int INTERVAL = 64;
+
+    // the tiles that changed between two checkpoints, and the counters after them
+    private static final class Checkpoint {
+        final int[] indices;
+        final short[] xors;
+        final int flagCount, discoveredCount, bombsPlaced, correctFlags, wrongFlags;
+        final boolean gameOver, clickedYet, won;
+
+        Checkpoint(int[] indices, short[] xors, BoardManager boardManager) {
+            this.indices = indices;
+            this.xors = xors;
+            flagCount = boardManager.flagCount;
+            discoveredCount = boardManager.discoveredCount;
+            bombsPlaced = boardManager.bombsPlaced;
+            correctFlags = boardManager.correctFlags;
+            wrongFlags = boardManager.wrongFlags;
+            gameOver = boardManager.gameOver;
+            clickedYet = boardManager.clickedYet;
+            won = boardManager.won;
+        }
+
+        void restoreCounters(BoardManager boardManager) {
+            boardManager.flagCount = flagCount;
+            boardManager.discoveredCount = discoveredCount;
+            boardManager.bombsPlaced = bombsPlaced;
+            boardManager.correctFlags = correctFlags;
+            boardManager.wrongFlags = wrongFlags;
+            boardManager.gameOver = gameOver;
+            boardManager.clickedYet = clickedYet;
+            boardManager.won = won;
+        }
+    }
+
+    private final GameRecord record;
+    private final BoardManager game;
+    private final ArrayList<Checkpoint> checkpoints = new ArrayList<>(); // see checkpointPosition
+    private final short[] base; // the tiles at checkpoint baseIndex
+    private int baseIndex = 0;
+    private int position = 0; // how many actions have been played on game
+
+    /**
+     * Replay a recorded game, starting from before its first action.
+     */
+    public ReplayEngine(GameRecord record) {
+        this(record, record.newGame());
+    }
+
+    /**
+     * Keep checkpoints of a game as it is played, so it can be undone. Actions played on the game are added to the
+     * record as they happen, so going back should only be done with {@link #undo()}, which forgets what came after.
+     * @param game A game before its first click. Its {@link BoardManager#recording} is started if it has none.
+     */
+    public ReplayEngine(BoardManager game) {
+        this(game.recording != null ? game.recording : new GameRecord(game), game);
+        game.recording = record;
+    }
+
+    private ReplayEngine(GameRecord record, BoardManager game) {
+        this.record = record;
+        this.game = game;
+        base = new short[game.w * game.h];
+        checkpoints.add(new Checkpoint(new int[0], new short[0], game));
+    }
+
+    /** @return The game, as of {@link #position()} actions. */
+    public BoardManager getGame() {
+        return game;
+    }
+
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /** @return How many actions have been played. */
+    public int position() {
+        return position;
+    }
+
+    /** @return How many actions there are. */
+    public int length() {
+        return record.size();
+    }
+
+    /**
+     * Put the game in the state it was after some number of actions.
+     * @param target How many actions to have played, from 0 to {@link #length()}.
+     */
+    public void seek(int target) {
+        if (target < 0 || target > record.size())
+            throw new IllegalArgumentException("cannot seek to " + target + " of " + record.size() + " actions");
+        syncLive();
+
+        // play forwards from here, unless a checkpoint closer to the target has been made already
+        int checkpoint = Math.min(checkpointBefore(target), checkpoints.size() - 1);
+        if (target >= position && checkpointPosition(checkpoint) <= position) {
+            play(target);
+            return;
+        }
+
+        moveBase(checkpoint);
+        PackedBoard board = game.board;
+        for (int i = 0; i < base.length; i++)
+            board.setRaw(i, base[i]);
+        checkpoints.get(checkpoint).restoreCounters(game);
+        position = checkpointPosition(checkpoint);
+        play(target);
+    }
+
+    public void stepForward() {
+        if (position < record.size())
+            seek(position + 1);
+    }
+
+    public void stepBackward() {
+        if (position > 0)
+            seek(position - 1);
+    }
+
+    /**
+     * Take back the last action, and forget it, so the game can go on from before it.
+     * @return Whether there was an action to take back.
+     */
+    public boolean undo() {
+        syncLive();
+        if (position == 0)
+            return false;
+        seek(position - 1);
+        truncate();
+        return true;
+    }
+
+    /**
+     * Forget every action after the current position, so new ones are added from here.
+     */
+    public void truncate() {
+        record.truncate(position);
+        while (checkpointPosition(checkpoints.size() - 1) > position)
+            checkpoints.remove(checkpoints.size() - 1);
+        if (baseIndex >= checkpoints.size())
+            moveBase(checkpoints.size() - 1);
+    }
+
+    // actions added to the record by playing the game directly are already on the board.
+    // their checkpoints are made when a seek plays over them again
+    private void syncLive() {
+        if (game.recording == record)
+            position = record.size();
+    }
+
+    // play actions from the current position up to target, keeping a checkpoint at every interval
+    private void play(int target) {
+        GameRecord recording = game.recording;
+        game.recording = null; // the actions are in the record already
+        try {
+            while (position < target) {
+                record.apply(position, game);
+                position++;
+                if (position == checkpointPosition(checkpoints.size()))
+                    addCheckpoint();
+            }
+        } finally {
+            game.recording = recording;
+        }
+    }
+
+    // how many actions have been played at a checkpoint: none, then one, then every INTERVAL after that
+    private static int checkpointPosition(int checkpoint) {
+        return checkpoint == 0 ? 0 : 1 + (checkpoint - 1) * INTERVAL;
+    }
+
+    // the last checkpoint at or before a position
+    private static int checkpointBefore(int position) {
+        return position == 0 ? 0 : 1 + (position - 1) / INTERVAL;
+    }
+
+    // diff the board against the tiles of the last checkpoint, and make that the base
+    private void addCheckpoint() {
+        moveBase(checkpoints.size() - 1);
+        PackedBoard board = game.board;
+        int changed = 0;
+        for (int i = 0; i < base.length; i++)
+            if (board.getRaw(i) != base[i])
+                changed++;
+
+        int[] indices = new int[changed];
+        short[] xors = new short[changed];
+        int k = 0;
+        for (int i = 0; i < base.length; i++) {
+            short raw = board.getRaw(i);
+            if (raw != base[i]) {
+                indices[k] = i;
+                xors[k++] = (short) (raw ^ base[i]);
+                base[i] = raw;
+            }
+        }
+        checkpoints.add(new Checkpoint(indices, xors, game));
+        baseIndex = checkpoints.size() - 1;
+    }
+
+    // move the base copy of the tiles to another checkpoint, through the diffs in between
+    private void moveBase(int checkpoint) {
+        while (baseIndex < checkpoint)
+            applyDiff(checkpoints.get(++baseIndex));
+        while (baseIndex > checkpoint)
+            applyDiff(checkpoints.get(baseIndex--));
+    }
+
+    private void applyDiff(Checkpoint checkpoint) {
+        for (int k = 0; k < checkpoint.indices.length; k++)
+            base[checkpoint.indices[k]] ^= checkpoint.xors[k];
+    }
+
+    /**
+     * @return The bytes the checkpoint diffs take, roughly.
+     */
+    public long checkpointBytes() {
+        long bytes = 0;
+        for (Checkpoint checkpoint : checkpoints)
+            bytes += checkpoint.indices.length * 6L + 48;
+        return bytes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        GameRecord longest = null;
+        if (args.length > 0) {
+            for (GameRecord record : ReplayArchive.readAll(Paths.get(args[0])))
+                if (longest == null || record.size() > longest.size())
+                    longest = record;
+        } else {
+            // a solver game on a big board
+            BoardManager boardManager = new BoardManager(128, 128, 2500, 5, 3, 1);
+            boardManager.recording = new GameRecord(boardManager);
+            Solver solver = new Solver(boardManager);
+            SplittableRandom random = new SplittableRandom(1);
+            while (!boardManager.gameOver)
+                solver.move(boardManager, random);
+            longest = boardManager.recording;
+        }
+
+        ReplayEngine engine = new ReplayEngine(longest);
+        long start = System.nanoTime();
+        engine.seek(engine.length());
+        System.out.printf("%d actions on %dx%d, played through in %.2f ms, checkpoints take %d bytes%n",
+                engine.length(), longest.w, longest.h, (System.nanoTime() - start) / 1e6, engine.checkpointBytes());
+
+        // scrub to random spots, then sweep backwards one action at a time
+        SplittableRandom random = new SplittableRandom(2);
+        long[] times = new long[2000];
+        for (int i = 0; i < times.length; i++) {
+            int target = random.nextInt(engine.length() + 1);
+            long t = System.nanoTime();
+            engine.seek(target);
+            times[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(times);
+        System.out.printf("random seeks: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", times[times.length / 2] / 1e6,
+                times[times.length * 99 / 100] / 1e6, times[times.length - 1] / 1e6);
+
+        engine.seek(engine.length());
+        start = System.nanoTime();
+        while (engine.position() > 0)
+            engine.stepBackward();
+        System.out.printf("stepped back through every action in %.2f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+}
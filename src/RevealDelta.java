@@ -0,0 +1,50 @@
+import java.util.Arrays;
+
+/**
+ * The tiles one action revealed, as packed indices ({@code x * h + y}) in the order they were revealed.
+ * Views and statistics can go through just these, instead of scanning the board for what changed.
+ * <p>
+ * A {@link BoardManager} reuses one delta for every action, so copy it with {@link #toArray()} to keep it.
+ */
+public class RevealDelta {
+
+    public final int h;
+    private int[] cells = new int[64];
+    private int size;
+
+    public RevealDelta(int h) {
+        this.h = h;
+    }
+
+    /** @return How many tiles were revealed. */
+    public int size() {
+        return size;
+    }
+
+    /** @return The packed index of the i-th tile revealed. */
+    public int get(int i) {
+        return cells[i];
+    }
+
+    public int x(int i) {
+        return cells[i] / h;
+    }
+
+    public int y(int i) {
+        return cells[i] % h;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(cells, size);
+    }
+
+    void add(int cell) {
+        if (size == cells.length)
+            cells = Arrays.copyOf(cells, size * 2);
+        cells[size++] = cell;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
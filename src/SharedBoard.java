@@ -0,0 +1,515 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One board that many players step and flag on at the same time, from any number of threads.
+ * <p>
+ * Rows are grouped into bands of {@code 1 << BAND_SHIFT}, and every band is guarded by one of {@link #STRIPES} locks.
+ * An action works out which bands it can touch before it locks anything: one band for most steps and every flag, the
+ * bands of the whole cave and its border for a step on a 0 hint, and every band for a rocket. It then takes those locks
+ * in order, so two actions never wait on each other in a circle. The hints never change once the board is made, so a
+ * cave can be found before its locks are held, and it is revealed while all of them are, so overlapping caves are
+ * revealed one after the other, each all at once. The counters are atomic, since actions on different bands change them
+ * together.
+ * <p>
+ * The game ends exactly once, by whichever action loses or wins it first. That action then locks every band to
+ * discover the whole board, and actions after it do nothing.
+ * <p>
+ * Listeners are told about each action after its locks are released, on the thread that made it, so they can be called
+ * from several threads at once.
+ * <p>
+ * Usage: {@code java SharedBoard [threads] [size] [bombs] [games]} plays games on dozens of threads at once, and checks
+ * the board against the counters and the listeners between rounds.
+ */
+public class SharedBoard {
+
+    private static final int BAND_SHIFT = 3; // rows per band, as a power of 2
+    private static final int STRIPES = 64; // one bit of a long per lock
+    private static final long ALL_STRIPES = -1L;
+
+    private static final int PLAYING = 0, LOST = 1, WON = 2;
+
+    public final int w, h;
+    private final BoardManager game; // makes the board on the first step, and is not played on
+    private volatile PackedBoard board;
+    private volatile int bombsPlaced;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final AtomicInteger state = new AtomicInteger(PLAYING);
+    private final AtomicInteger discoveredCount = new AtomicInteger();
+    private final AtomicInteger flagCount = new AtomicInteger(), correctFlags = new AtomicInteger(),
+            wrongFlags = new AtomicInteger();
+    private final CopyOnWriteArrayList<BoardManager.Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<FloodFill> caveFill;
+
+    public SharedBoard(int w, int h, int bombCount, int radarCount, int rocketCount, long seed) {
+        this.w = w;
+        this.h = h;
+        game = new BoardManager(w, h, bombCount, radarCount, rocketCount, seed);
+        caveFill = ThreadLocal.withInitial(() -> new FloodFill(w, h));
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    public void addListener(BoardManager.Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BoardManager.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** @return Whether the first step has made the board yet. */
+    public boolean isStarted() {
+        return board != null;
+    }
+
+    /*
+     * Reads take no locks. Each tile is read whole, but while actions are running, what is read may be about to change.
+     */
+
+    public boolean isDiscovered(int x, int y) {
+        return board != null && board.isDiscovered(board.index(x, y));
+    }
+
+    public int getTile(int x, int y) {
+        return board == null ? BoardManager.BOARD_EMPTY : board.getTile(board.index(x, y));
+    }
+
+    public int getFlag(int x, int y) {
+        return board == null ? 0 : board.getFlag(board.index(x, y));
+    }
+
+    public int getHint(int x, int y) {
+        return board == null ? 0 : board.getHint(board.index(x, y));
+    }
+
+    public int getDiscoveredCount() {
+        return discoveredCount.get();
+    }
+
+    public int getFlagCount() {
+        return flagCount.get();
+    }
+
+    public int getBombsPlaced() {
+        return bombsPlaced;
+    }
+
+    public boolean isGameOver() {
+        return state.get() != PLAYING;
+    }
+
+    public boolean isWon() {
+        return state.get() == WON;
+    }
+
+    /**
+     * Step on a tile, like {@link BoardManager#stepOnTile(int, int)}. The first step of the game makes the board.
+     * @return One of the {@code BoardManager.STEPPED_ON_*} results.
+     */
+    public int stepOnTile(int x, int y) {
+        start(x, y);
+        PackedBoard board = this.board;
+        int index = board.index(x, y);
+
+        // work out every band the step can touch. a tile can stop being a rocket, but never start being one
+        long mask = stripesOf(x, x);
+        FloodFill cave = null;
+        int caveSize = 0;
+        if (board.getTile(index) != BoardManager.BOARD_BOMB && board.getHint(index) == 0) {
+            cave = caveFill.get();
+            caveSize = cave.fill(board, x, y, 0);
+            int[] cells = cave.result();
+            int minX = x, maxX = x;
+            for (int k = 0; k < caveSize; k++) {
+                int caveX = cells[k] / h;
+                minX = Math.min(minX, caveX);
+                maxX = Math.max(maxX, caveX);
+            }
+            mask = stripesOf(Math.max(minX - 1, 0), Math.min(maxX + 1, w - 1));
+        }
+        // a hidden rocket opens its cave like any other tile, but once found it can reach any band
+        if (board.getTile(index) == BoardManager.BOARD_ROCKET)
+            mask = stripesOf(0, w - 1);
+
+        RevealDelta revealed = new RevealDelta(h);
+        int[] flagged = new int[2];
+        int flaggedCount = 0;
+        int result = BoardManager.STEPPED_ON_EMPTY;
+        boolean changed = false, ended = false;
+
+        lock(mask);
+        try {
+            if (state.get() != PLAYING || board.getFlag(index) == 1)
+                return BoardManager.STEPPED_ON_EMPTY;
+
+            int tile = board.getTile(index);
+            if (tile == BoardManager.BOARD_BOMB) {
+                ended = state.compareAndSet(PLAYING, LOST);
+                result = BoardManager.STEPPED_ON_BOMB;
+
+            } else if (tile == BoardManager.BOARD_RADAR && board.isDiscovered(index)) {
+                board.setTile(index, BoardManager.BOARD_EMPTY);
+                changed = true;
+                result = tile;
+
+            } else if (tile == BoardManager.BOARD_ROCKET && board.isDiscovered(index)) {
+                board.setTile(index, BoardManager.BOARD_EMPTY);
+                changed = true;
+                result = tile;
+
+                for (int i = x; i < w; i++) {
+                    int rowIndex = board.index(i, y);
+                    if (board.getTile(rowIndex) == BoardManager.BOARD_BOMB && board.getFlag(rowIndex) == 0) {
+                        if (setFlag(rowIndex, 1))
+                            flagged[flaggedCount++] = rowIndex;
+                        break;
+                    }
+                    reveal(rowIndex, revealed);
+                }
+                for (int i = x; i > -1; i--) {
+                    int rowIndex = board.index(i, y);
+                    if (board.getTile(rowIndex) == BoardManager.BOARD_BOMB) {
+                        if (setFlag(rowIndex, 1))
+                            flagged[flaggedCount++] = rowIndex;
+                        break;
+                    }
+                    reveal(rowIndex, revealed);
+                }
+                ended = checkWin();
+
+            } else {
+                // the cave was found before locking, and every band it touches is locked now
+                int[] cells = cave == null ? null : cave.result();
+                for (int k = 0; k < caveSize; k++) {
+                    int caveX = cells[k] / h;
+                    int caveY = cells[k] % h;
+                    for (int i = Math.max(caveX - 1, 0); i <= Math.min(caveX + 1, w - 1); i++)
+                        for (int j = Math.max(caveY - 1, 0); j <= Math.min(caveY + 1, h - 1); j++)
+                            reveal(board.index(i, j), revealed);
+                }
+                reveal(index, revealed);
+            }
+        } finally {
+            unlock(mask);
+        }
+
+        if (changed)
+            for (BoardManager.Listener listener : listeners)
+                listener.tileChanged(x, y);
+        for (int i = 0; i < flaggedCount; i++)
+            for (BoardManager.Listener listener : listeners)
+                listener.flagChanged(flagged[i] / h, flagged[i] % h);
+        announce(revealed);
+        if (ended)
+            end();
+        return result;
+    }
+
+    /**
+     * Flag or unflag a hidden tile, like {@link BoardManager#flagTile(int, int)}. Flagging the last bomb wins the game.
+     */
+    public void flagTile(int x, int y) {
+        PackedBoard board = this.board;
+        if (board == null)
+            return;
+        int index = board.index(x, y);
+        long mask = stripesOf(x, x);
+        boolean changed, ended;
+
+        lock(mask);
+        try {
+            if (state.get() != PLAYING || board.isDiscovered(index))
+                return;
+            changed = setFlag(index, board.getFlag(index) == 0 ? 1 : 0);
+            ended = checkWin();
+        } finally {
+            unlock(mask);
+        }
+
+        if (changed)
+            for (BoardManager.Listener listener : listeners)
+                listener.flagChanged(x, y);
+        if (ended)
+            end();
+    }
+
+    // make the board on the first step. every other step waits for it
+    private void start(int x, int y) {
+        if (board != null)
+            return;
+        synchronized (game) {
+            if (board != null)
+                return;
+            game.clickedYet = true;
+            game.createBoard(x, y);
+            bombsPlaced = game.bombsPlaced;
+            board = game.board;
+        }
+    }
+
+    // the locked bands of rows from x1 to x2, as a bitmask of stripes
+    private long stripesOf(int x1, int x2) {
+        int first = x1 >> BAND_SHIFT, last = x2 >> BAND_SHIFT;
+        if (last - first >= STRIPES - 1)
+            return ALL_STRIPES;
+        long mask = 0;
+        for (int band = first; band <= last; band++)
+            mask |= 1L << (band & (STRIPES - 1));
+        return mask;
+    }
+
+    // lowest stripe first, so actions that share stripes always take them in the same order
+    private void lock(long mask) {
+        for (long left = mask; left != 0; left &= left - 1)
+            stripes[Long.numberOfTrailingZeros(left)].lock();
+    }
+
+    private void unlock(long mask) {
+        for (long left = mask; left != 0; left &= left - 1)
+            stripes[Long.numberOfTrailingZeros(left)].unlock();
+    }
+
+    // needs the tile's band locked
+    private void reveal(int index, RevealDelta revealed) {
+        if (board.isDiscovered(index))
+            return;
+        board.setDiscovered(index, true);
+        discoveredCount.incrementAndGet();
+        revealed.add(index);
+    }
+
+    // needs the tile's band locked. returns whether the flag changed
+    private boolean setFlag(int index, int flag) {
+        int prev = board.getFlag(index);
+        if (prev == flag)
+            return false;
+
+        board.setFlag(index, flag);
+        if (prev != 1 && flag != 1)
+            return true;
+
+        int change = flag == 1 ? 1 : -1;
+        flagCount.addAndGet(change);
+        if (board.getTile(index) == BoardManager.BOARD_BOMB)
+            correctFlags.addAndGet(change);
+        else
+            wrongFlags.addAndGet(change);
+        return true;
+    }
+
+    // the game is won the moment the last bomb is flagged, even if a flag comes off right after
+    private boolean checkWin() {
+        return correctFlags.get() == bombsPlaced && state.compareAndSet(PLAYING, WON);
+    }
+
+    // discover the whole board once the game has ended. only the action that ended it calls this
+    private void end() {
+        RevealDelta revealed = new RevealDelta(h);
+        lock(ALL_STRIPES);
+        try {
+            for (int i = 0; i < board.size(); i++)
+                reveal(i, revealed);
+        } finally {
+            unlock(ALL_STRIPES);
+        }
+        announce(revealed);
+        for (BoardManager.Listener listener : listeners)
+            listener.gameEnded(state.get() == WON);
+    }
+
+    private void announce(RevealDelta revealed) {
+        if (revealed.size() == 0)
+            return;
+        for (BoardManager.Listener listener : listeners)
+            listener.tilesRevealed(revealed);
+    }
+
+    /**
+     * Recount everything the counters track with a full scan. Only meaningful while no action is running.
+     * @return What does not match, or null if everything does.
+     */
+    public String checkInvariants() {
+        if (board == null)
+            return null;
+        int discovered = 0, flagged = 0, correct = 0, wrong = 0, bombs = 0;
+        for (int i = 0; i < board.size(); i++) {
+            boolean bomb = board.getTile(i) == BoardManager.BOARD_BOMB;
+            boolean flag = board.getFlag(i) == 1;
+            if (board.isDiscovered(i)) discovered++;
+            if (bomb) bombs++;
+            if (flag) flagged++;
+            if (flag && bomb) correct++;
+            if (flag && !bomb) wrong++;
+        }
+        if (discovered != discoveredCount.get())
+            return discovered + " tiles discovered, counted " + discoveredCount.get();
+        if (bombs != bombsPlaced || flagged != flagCount.get() || correct != correctFlags.get()
+                || wrong != wrongFlags.get())
+            return "flag counters out of sync with the board";
+        if (state.get() != PLAYING && discovered != board.size())
+            return "the game ended with " + (board.size() - discovered) + " tiles hidden";
+        if (state.get() == PLAYING && correct == bombsPlaced)
+            return "every bomb is flagged, but the game is not won";
+
+        // a cave is revealed whole or not at all, so a discovered 0 has no hidden neighbors
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                int index = board.index(x, y);
+                if (!board.isDiscovered(index) || board.getHint(index) != 0
+                        || board.getTile(index) == BoardManager.BOARD_BOMB)
+                    continue;
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++)
+                    for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, h - 1); j++)
+                        if (!board.isDiscovered(board.index(i, j)))
+                            return "the cave at " + x + ", " + y + " is only partly revealed";
+            }
+        }
+        return null;
+    }
+
+    // counts what the listeners are told, from every thread at once
+    private static final class Checker implements BoardManager.Listener {
+        final AtomicLongArray seen;
+        final AtomicInteger revealed = new AtomicInteger(), twice = new AtomicInteger(), ended = new AtomicInteger();
+
+        Checker(int size) {
+            seen = new AtomicLongArray((size + 63) >>> 6);
+        }
+
+        @Override
+        public void tilesRevealed(RevealDelta delta) {
+            for (int i = 0; i < delta.size(); i++) {
+                int cell = delta.get(i);
+                long bit = 1L << cell;
+                if ((seen.getAndAccumulate(cell >>> 6, bit, (a, b) -> a | b) & bit) != 0)
+                    twice.incrementAndGet();
+            }
+            revealed.addAndGet(delta.size());
+        }
+
+        @Override
+        public void gameEnded(boolean won) {
+            ended.incrementAndGet();
+        }
+    }
+
+    // step on a hidden rocket with no bombs around it, which should open its whole cave like on a BoardManager.
+    // boards only get 2 rockets, so boards are made until one of them has a 0 hint and is still hidden
+    private static String checkRocketCave(int size, long seed) {
+        int bombs = size * size / 8, center = size / 2; // dense, so caves stay small
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int attempt = 0; attempt < 100; attempt++) {
+            long boardSeed = seeds.nextLong();
+            SharedBoard shared = new SharedBoard(size, size, bombs, 0, 2, boardSeed);
+            BoardManager serial = new BoardManager(size, size, bombs, 0, 2, boardSeed);
+            shared.stepOnTile(center, center);
+            serial.clickedYet = true;
+            serial.createBoard(center, center);
+            serial.stepOnTile(center, center);
+
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (shared.getTile(x, y) != BoardManager.BOARD_ROCKET || shared.getHint(x, y) != 0
+                            || shared.isDiscovered(x, y))
+                        continue;
+                    shared.stepOnTile(x, y);
+                    serial.stepOnTile(x, y);
+                    String failure = shared.checkInvariants();
+                    if (failure == null && shared.getDiscoveredCount() != serial.discoveredCount)
+                        failure = "a rocket at " + x + ", " + y + " revealed " + shared.getDiscoveredCount()
+                                + " tiles in all, against " + serial.discoveredCount;
+                    return failure;
+                }
+            }
+        }
+        return "no board had a hidden rocket with a 0 hint";
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+        int bombs = args.length > 2 ? Integer.parseInt(args[2]) : size * size / 6;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int actionsPerRound = 2000; // per thread, between checks
+
+        SplittableRandom seeds = new SplittableRandom(1);
+        for (int g = 0; g < games; g++) {
+            // every other game has players who step on bombs now and then, so games are lost as well as won
+            boolean careless = g % 2 == 1;
+            SharedBoard shared = new SharedBoard(size, size, bombs, 0, 2, seeds.nextLong());
+            Checker checker = new Checker(size * size);
+            shared.addListener(checker);
+            shared.stepOnTile(size / 2, size / 2);
+
+            ArrayList<String> failures = new ArrayList<>();
+            String rocketFailure = checkRocketCave(size, seeds.nextLong());
+            if (rocketFailure != null)
+                failures.add(rocketFailure);
+            AtomicInteger actions = new AtomicInteger();
+            boolean[] over = new boolean[1]; // decided once per round, so every player stops after the same round
+            CyclicBarrier round = new CyclicBarrier(threads, () -> {
+                over[0] = shared.isGameOver();
+                String failure = shared.checkInvariants();
+                if (failure == null && checker.revealed.get() != shared.getDiscoveredCount())
+                    failure = "listeners were told of " + checker.revealed.get() + " reveals, counted "
+                            + shared.getDiscoveredCount();
+                if (failure == null && checker.twice.get() != 0)
+                    failure = checker.twice.get() + " tiles were revealed twice";
+                if (failure == null && checker.ended.get() != (shared.isGameOver() ? 1 : 0))
+                    failure = "the game ended " + checker.ended.get() + " times";
+                if (failure != null)
+                    failures.add(failure);
+            });
+
+            // the players know where the bombs are, so a game lasts until they are all flagged or one is stepped on.
+            // the wrong flags they place are taken off again the next time someone comes across them
+            Thread[] running = new Thread[threads];
+            long gameSeed = seeds.nextLong();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(gameSeed + t);
+                running[t] = new Thread(() -> {
+                    try {
+                        do {
+                            for (int a = 0; a < actionsPerRound && !shared.isGameOver(); a++) {
+                                int x = random.nextInt(size), y = random.nextInt(size);
+                                if (shared.isDiscovered(x, y))
+                                    continue;
+                                boolean bomb = shared.getTile(x, y) == BoardManager.BOARD_BOMB;
+                                boolean flagged = shared.getFlag(x, y) == 1;
+                                if (bomb && careless && random.nextInt(20000) == 0)
+                                    shared.stepOnTile(x, y);
+                                else if (bomb != flagged || (!bomb && random.nextInt(64) == 0))
+                                    shared.flagTile(x, y); // fixes a flag, or now and then flags a safe tile wrongly
+                                else if (!bomb)
+                                    shared.stepOnTile(x, y);
+                                actions.incrementAndGet();
+                            }
+                            round.await();
+                        } while (!over[0]);
+                    } catch (Exception e) {
+                        round.reset();
+                    }
+                }, "player " + t);
+                running[t].start();
+            }
+            for (Thread thread : running)
+                thread.join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            String failure = shared.checkInvariants();
+            if (failure != null)
+                failures.add(failure);
+            System.out.printf("%dx%d, %d players: %s after %d actions, %.0f actions/s, %s%n", size, size, threads,
+                    shared.isWon() ? "won" : "lost", actions.get(), actions.get() / seconds,
+                    failures.isEmpty() ? "invariants hold" : "FAILED: " + failures);
+        }
+    }
+}
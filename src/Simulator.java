@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Headless driver that plays lots of games against {@link BoardManager} on every core, without touching AWT.
+ * Used to measure how often a {@link Player} wins, and what the generated boards look like at scale.
+ * <p>
+ * Usage: {@code java Simulator [games] [size] [bombs] [threads] [random|solver] [noguess]}
+ */
+public class Simulator {
+
+    /**
+     * Something that can play a game, one move at a time.
+     * A player should only look at what a person could see: {@link BoardManager#isDiscovered(int, int)},
+     * {@link BoardManager#getHint(int, int, int)} of discovered tiles and {@link BoardManager#getFlag(int, int)}.
+     */
+    public interface Player {
+        /**
+         * Make one move, a {@link BoardManager#stepOnTile(int, int)} or {@link BoardManager#flagTile(int, int)}.
+         * @param boardManager The game, which has already had its first click.
+         * @param random The random source of this game, for guessing.
+         * @return Whether a move was made. Returning false gives up the game.
+         */
+        boolean move(BoardManager boardManager, SplittableRandom random);
+    }
+
+    /**
+     * Steps on random undiscovered tiles, and never flags. Only useful as a baseline.
+     */
+    public static class RandomPlayer implements Player {
+        @Override
+        public boolean move(BoardManager boardManager, SplittableRandom random) {
+            int[] tile = randomHiddenTile(boardManager, random);
+            if (tile == null)
+                return false;
+            boardManager.stepOnTile(tile[0], tile[1]);
+            return true;
+        }
+    }
+
+    /**
+     * Pick a random tile that is neither discovered nor flagged.
+     * @return The x and y of the tile, or null if there are none left.
+     */
+    public static int[] randomHiddenTile(BoardManager boardManager, SplittableRandom random) {
+        // try a few random tiles first, most of the board is usually hidden
+        for (int i = 0; i < 32; i++) {
+            int x = random.nextInt(boardManager.w);
+            int y = random.nextInt(boardManager.h);
+            if (!boardManager.isDiscovered(x, y) && boardManager.getFlag(x, y) == 0)
+                return new int[] { x, y };
+        }
+
+        int hidden = 0;
+        for (int x = 0; x < boardManager.w; x++)
+            for (int y = 0; y < boardManager.h; y++)
+                if (!boardManager.isDiscovered(x, y) && boardManager.getFlag(x, y) == 0)
+                    hidden++;
+        if (hidden == 0)
+            return null;
+
+        int pick = random.nextInt(hidden);
+        for (int x = 0; x < boardManager.w; x++)
+            for (int y = 0; y < boardManager.h; y++)
+                if (!boardManager.isDiscovered(x, y) && boardManager.getFlag(x, y) == 0 && pick-- == 0)
+                    return new int[] { x, y };
+        return null;
+    }
+
+    /**
+     * Totals over a batch of games. Each worker fills its own, and they are merged at the end.
+     */
+    public static class Stats {
+        public long games, wins, losses, givenUp, moves, bombsPlaced, firstCaveTiles, generationNanos;
+
+        void add(Stats other) {
+            games += other.games;
+            wins += other.wins;
+            losses += other.losses;
+            givenUp += other.givenUp;
+            moves += other.moves;
+            bombsPlaced += other.bombsPlaced;
+            firstCaveTiles += other.firstCaveTiles;
+            generationNanos += other.generationNanos;
+        }
+
+        public double winRate() {
+            return games == 0 ? 0 : wins / (double) games;
+        }
+
+        @Override
+        public String toString() {
+            double n = Math.max(games, 1);
+            return String.format("games: %d, won: %d (%.2f%%), lost: %d, gave up: %d%n"
+                    + "avg moves: %.1f, avg bombs placed: %.1f, avg first reveal: %.1f tiles, avg generation: %.1f us",
+                    games, wins, winRate() * 100, losses, givenUp,
+                    moves / n, bombsPlaced / n, firstCaveTiles / n, generationNanos / n / 1000);
+        }
+    }
+
+    private final int w, h, bombCount, radarCount, rocketCount;
+    public boolean noGuess = false; // play on boards from the NoGuessGenerator
+    public Consumer<GameRecord> recorder; // gets a record of every game, from the worker threads, or null
+
+    public Simulator(int w, int h, int bombCount, int radarCount, int rocketCount) {
+        this.w = w;
+        this.h = h;
+        this.bombCount = bombCount;
+        this.radarCount = radarCount;
+        this.rocketCount = rocketCount;
+    }
+
+    /**
+     * Play one game to the end. The board and the first click both come from the seed, so a game can be replayed.
+     * @param seed The seed of the game.
+     * @param player The player to make the moves after the first click.
+     * @param stats The stats to add this game to.
+     */
+    public void play(long seed, Player player, Stats stats) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BoardManager boardManager = new BoardManager(w, h, bombCount, radarCount, rocketCount, random.nextLong());
+        boardManager.noGuess = noGuess;
+        if (recorder != null)
+            boardManager.recording = new GameRecord(boardManager);
+
+        long start = System.nanoTime();
+        boardManager.stepOnTile(random.nextInt(w), random.nextInt(h));
+        stats.generationNanos += System.nanoTime() - start;
+        stats.bombsPlaced += boardManager.bombsPlaced;
+        stats.firstCaveTiles += countDiscovered(boardManager);
+
+        // every move discovers or flags something, so this is only a guard against players that loop
+        int moveLimit = 2 * w * h;
+        int moves = 0;
+        boolean gaveUp = false;
+        while (!boardManager.gameOver && moves < moveLimit) {
+            if (!player.move(boardManager, random)) {
+                gaveUp = true;
+                break;
+            }
+            moves++;
+        }
+
+        if (recorder != null)
+            recorder.accept(boardManager.recording);
+
+        stats.games++;
+        stats.moves += moves;
+        if (boardManager.won)
+            stats.wins++;
+        else if (boardManager.gameOver)
+            stats.losses++;
+        else if (gaveUp || moves == moveLimit)
+            stats.givenUp++;
+    }
+
+    /**
+     * Play a batch of games split over a thread pool.
+     * @param games How many games to play.
+     * @param threads How many threads to play them on.
+     * @param seed The seed of the first game, the rest follow on from it.
+     * @param players Makes a player for each thread, so players do not need to be thread safe.
+     * @return The totals over every game.
+     */
+    public Stats run(long games, int threads, long seed, Supplier<Player> players) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<Stats>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long from = games * t / threads;
+                long to = games * (t + 1) / threads;
+                futures.add(pool.submit(() -> {
+                    Player player = players.get();
+                    Stats stats = new Stats();
+                    for (long i = from; i < to; i++) {
+                        play(seed + i, player, stats);
+                    }
+                    return stats;
+                }));
+            }
+
+            Stats total = new Stats();
+            for (Future<Stats> future : futures) {
+                total.add(future.get());
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int countDiscovered(BoardManager boardManager) {
+        int count = 0;
+        for (int i = 0; i < boardManager.board.size(); i++)
+            if (boardManager.board.isDiscovered(i))
+                count++;
+        return count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int bombs = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        boolean useSolver = args.length > 4 && args[4].equals("solver");
+
+        Simulator simulator = new Simulator(size, size, bombs, 5, 3);
+        simulator.noGuess = args.length > 5 && args[5].equals("noguess");
+        long start = System.nanoTime();
+        Stats stats = simulator.run(games, threads, 1,
+                () -> useSolver ? new Solver(null, Solver.defaultStrategies()) : new RandomPlayer());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(stats);
+        System.out.printf("%d games in %.2f s on %d threads, %.0f games per minute%n",
+                stats.games, seconds, threads, stats.games / seconds * 60);
+        if (simulator.noGuess)
+            System.out.println(NoGuessGenerator.getLatencyReport());
+    }
+}
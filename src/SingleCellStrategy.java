@@ -0,0 +1,39 @@
+/**
+ * The basic rules, one constraint at a time.
+ * A tile whose hint is already used up by flags makes its other neighbors safe, and a tile with exactly as many hidden
+ * neighbors as bombs left makes them all bombs. The same goes for the whole board and the bombs left to flag.
+ */
+public class SingleCellStrategy implements SolverStrategy {
+
+    @Override
+    public String getName() {
+        return "single";
+    }
+
+    @Override
+    public void apply(Solver solver) {
+        for (Solver.Constraint constraint : solver.getConstraints()) {
+            if (constraint.mines == 0) {
+                for (int cell : constraint.cells)
+                    solver.markSafe(cell);
+            } else if (constraint.mines == constraint.cells.length) {
+                for (int cell : constraint.cells)
+                    solver.markMine(cell);
+            }
+        }
+
+        // the whole board is one big constraint too
+        int minesLeft = solver.getMinesLeft();
+        if (minesLeft == 0 || minesLeft == solver.getHiddenCount()) {
+            int size = solver.getWidth() * solver.getHeight();
+            for (int index = 0; index < size; index++) {
+                if (!solver.isHidden(index))
+                    continue;
+                if (minesLeft == 0)
+                    solver.markSafe(index);
+                else
+                    solver.markMine(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Works out safe tiles and bombs from what the player can see: discovered tiles, their bomb hints, and flags.
+ * <p>
+ * Every discovered tile next to hidden tiles gives a {@link Constraint}, "this many of these tiles are bombs".
+ * A list of {@link SolverStrategy}s is run over the constraints from cheapest to most expensive, stopping at the first
+ * one that proves anything. The time each strategy takes is recorded, see {@link #getLatencyReport()}.
+ * <p>
+ * Flags are trusted to be on bombs, so the solver should only be used on boards where flags were placed correctly,
+ * like the ones it flags itself.
+ */
+public class Solver implements Simulator.Player {
+
+    // what the solver knows about a tile
+    public static final byte UNKNOWN = 0;
+    public static final byte SAFE = 1;
+    public static final byte MINE = 2;
+
+    /**
+     * "Exactly {@code mines} of these hidden tiles are bombs."
+     */
+    public static class Constraint {
+        public final int[] cells; // packed indices of hidden, unflagged tiles
+        public final int mines;
+
+        public Constraint(int[] cells, int mines) {
+            this.cells = cells;
+            this.mines = mines;
+        }
+    }
+
+    private final SolverStrategy[] strategies;
+    private final ProbabilityEngine probabilityEngine = new ProbabilityEngine();
+    private BoardManager boardManager;
+    private int w, h;
+
+    // rebuilt by every solve
+    private final ArrayList<Constraint> constraints = new ArrayList<>();
+    private byte[] deduced;
+    private int[] safe, mines;
+    private int safeCount, mineCount, hiddenCount, minesLeft;
+
+    // latency of every strategy, and of whole solves in the last slot
+    private final long[] calls, totalNanos, maxNanos, found;
+
+    /**
+     * Create a solver with the default strategies, single tile rules, then subset rules, then enumeration.
+     * @param boardManager The game to solve.
+     */
+    public Solver(BoardManager boardManager) {
+        this(boardManager, defaultStrategies());
+    }
+
+    /**
+     * @param boardManager The game to solve, or null to set it later with {@link #setBoard(BoardManager)}.
+     * @param strategies The strategies to try, in order.
+     */
+    public Solver(BoardManager boardManager, SolverStrategy... strategies) {
+        this.strategies = strategies;
+        if (boardManager != null)
+            setBoard(boardManager);
+        calls = new long[strategies.length + 1];
+        totalNanos = new long[strategies.length + 1];
+        maxNanos = new long[strategies.length + 1];
+        found = new long[strategies.length + 1];
+    }
+
+    public static SolverStrategy[] defaultStrategies() {
+        return new SolverStrategy[] { new SingleCellStrategy(), new SubsetStrategy(), new EnumerationStrategy() };
+    }
+
+    /**
+     * Switch to another game. The latency stats carry on.
+     * @param boardManager The game to solve.
+     */
+    public void setBoard(BoardManager boardManager) {
+        this.boardManager = boardManager;
+        if (deduced == null || boardManager.w != w || boardManager.h != h) {
+            w = boardManager.w;
+            h = boardManager.h;
+            deduced = new byte[w * h];
+            safe = new int[w * h];
+            mines = new int[w * h];
+        }
+    }
+
+    /**
+     * Build the constraints for the board as it is now, and run the strategies until one proves something.
+     * @return Whether any safe tile or bomb was found, see {@link #getSafe()} and {@link #getMines()}.
+     */
+    public boolean solve() {
+        long start = System.nanoTime();
+        buildConstraints();
+
+        for (int s = 0; s < strategies.length && safeCount + mineCount == 0; s++) {
+            long strategyStart = System.nanoTime();
+            strategies[s].apply(this);
+            record(s, System.nanoTime() - strategyStart, safeCount + mineCount);
+        }
+
+        record(strategies.length, System.nanoTime() - start, safeCount + mineCount);
+        return safeCount + mineCount > 0;
+    }
+
+    /**
+     * Build the constraints for the board as it is now, and forget what the last solve proved,
+     * without running any strategy. {@link #solve()} does this itself.
+     */
+    public void buildConstraints() {
+        constraints.clear();
+        Arrays.fill(deduced, UNKNOWN);
+        safeCount = 0;
+        mineCount = 0;
+
+        // only the discovered tiles on the edge of the hidden ones constrain anything, so find them a word at a time
+        PackedBoard board = boardManager.board;
+        BitBoard discovered = BitBoard.discovered(board), hidden = BitBoard.hidden(board);
+        hiddenCount = hidden.count();
+        int flagged = board.size() - discovered.count() - hiddenCount;
+
+        int[] cells = new int[8];
+        hidden.forEachAround(discovered, index -> {
+            int x = index / h, y = index % h;
+            int count = 0, mines = board.getHint(index);
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, w - 1); i++) {
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, h - 1); j++) {
+                    int neighbor = board.index(i, j);
+                    if (board.isDiscovered(neighbor))
+                        continue;
+                    if (board.getFlag(neighbor) == 1)
+                        mines--;
+                    else
+                        cells[count++] = neighbor;
+                }
+            }
+            if (count > 0)
+                constraints.add(new Constraint(Arrays.copyOf(cells, count), mines));
+        });
+        minesLeft = boardManager.getShownBombCount() - flagged;
+    }
+
+    private void record(int slot, long nanos, int moves) {
+        calls[slot]++;
+        totalNanos[slot] += nanos;
+        maxNanos[slot] = Math.max(maxNanos[slot], nanos);
+        found[slot] += moves;
+    }
+
+    /**
+     * @return The constraints of the current board. Strategies must not change them.
+     */
+    public List<Constraint> getConstraints() {
+        return constraints;
+    }
+
+    public int getWidth() {
+        return w;
+    }
+
+    public int getHeight() {
+        return h;
+    }
+
+    /**
+     * @return How many tiles are neither discovered nor flagged.
+     */
+    public int getHiddenCount() {
+        return hiddenCount;
+    }
+
+    /**
+     * @return How many bombs are not flagged yet.
+     */
+    public int getMinesLeft() {
+        return minesLeft;
+    }
+
+    /**
+     * @param index The packed index of a tile.
+     * @return Whether the tile is hidden and unflagged, so still in play.
+     */
+    public boolean isHidden(int index) {
+        return !boardManager.board.isDiscovered(index) && boardManager.board.getFlag(index) != 1;
+    }
+
+    /**
+     * @param index The packed index of a tile.
+     * @return What this solve has proven about the tile so far.
+     */
+    public byte getDeduced(int index) {
+        return deduced[index];
+    }
+
+    public void markSafe(int index) {
+        if (deduced[index] != UNKNOWN)
+            return;
+        deduced[index] = SAFE;
+        safe[safeCount++] = index;
+    }
+
+    public void markMine(int index) {
+        if (deduced[index] != UNKNOWN)
+            return;
+        deduced[index] = MINE;
+        mines[mineCount++] = index;
+    }
+
+    /**
+     * @return The packed indices of the tiles proven safe by the last solve.
+     */
+    public int[] getSafe() {
+        return Arrays.copyOf(safe, safeCount);
+    }
+
+    /**
+     * @return The packed indices of the tiles proven to be bombs by the last solve.
+     */
+    public int[] getMines() {
+        return Arrays.copyOf(mines, mineCount);
+    }
+
+    /**
+     * Step on every proven safe tile and flag every proven bomb, or when nothing can be proven, step on the tile the
+     * {@link ProbabilityEngine} finds least likely to be a bomb.
+     * The first click goes in the middle of the board.
+     */
+    @Override
+    public boolean move(BoardManager boardManager, SplittableRandom random) {
+        if (boardManager != this.boardManager)
+            setBoard(boardManager);
+
+        if (!boardManager.clickedYet) {
+            boardManager.stepOnTile(w / 2, h / 2);
+            return true;
+        }
+
+        if (!solve()) {
+            // the constraints from the solve are still there, so guess the tile least likely to be a bomb
+            probabilityEngine.compute(this);
+            int best = probabilityEngine.getBestGuess();
+            if (best != -1) {
+                boardManager.stepOnTile(best / h, best % h);
+                return true;
+            }
+            int[] guess = Simulator.randomHiddenTile(boardManager, random);
+            if (guess == null)
+                return false;
+            boardManager.stepOnTile(guess[0], guess[1]);
+            return true;
+        }
+
+        for (int i = 0; i < mineCount && !boardManager.gameOver; i++)
+            boardManager.flagTile(mines[i] / h, mines[i] % h);
+        for (int i = 0; i < safeCount && !boardManager.gameOver; i++)
+            if (!boardManager.board.isDiscovered(safe[i])) // an earlier step may have opened it already
+                boardManager.stepOnTile(safe[i] / h, safe[i] % h);
+        return true;
+    }
+
+    /**
+     * @return The number of solves, mean and max time, and tiles found, for every strategy and for whole solves.
+     */
+    public String getLatencyReport() {
+        StringBuilder report = new StringBuilder();
+        for (int s = 0; s <= strategies.length; s++) {
+            String name = s < strategies.length ? strategies[s].getName() : "total";
+            report.append(String.format("%-12s calls: %8d, mean: %8.2f us, max: %8.2f us, found: %d%n", name, calls[s],
+                    calls[s] == 0 ? 0 : totalNanos[s] / 1000.0 / calls[s], maxNanos[s] / 1000.0, found[s]));
+        }
+        return report.toString();
+    }
+}
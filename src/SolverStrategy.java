@@ -0,0 +1,18 @@
+/**
+ * One way of working out which hidden tiles are certainly safe or certainly bombs.
+ * Strategies only see what a player could see, through the constraints built by {@link Solver}.
+ */
+public interface SolverStrategy {
+
+    /**
+     * @return A short name, for latency reports.
+     */
+    String getName();
+
+    /**
+     * Look at the solver's constraints, and mark every tile this strategy can prove with
+     * {@link Solver#markSafe(int)} or {@link Solver#markMine(int)}.
+     * @param solver The solver, with its constraints already built for the current board.
+     */
+    void apply(Solver solver);
+}
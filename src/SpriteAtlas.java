@@ -0,0 +1,148 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Every tile image and hint digit, pre-scaled to the current tile size and packed into one image.
+ * Drawing a tile is then a single unscaled blit out of the atlas, instead of scaling an image or laying out a string.
+ * The atlas is only rebuilt when the tile size changes.
+ */
+public class SpriteAtlas {
+
+    // the sprites
+    public static final int BOMB = 0;
+    public static final int FLAG = 1;
+    public static final int RADAR = 2;
+    public static final int ROCKET = 3;
+    private static final int HINTS = 4; // hints 1 - 8 in their colors, then 1 - 8 in white
+    private static final int SPRITES = HINTS + 16;
+
+    private static final int ROCKET_OVERHANG = 10; // rockets are drawn wider than their tile
+
+    private final Image[] images;
+    private final Color[] hintColors;
+    private final Font hintFont;
+
+    private int tileW = -1, tileH = -1;
+    private BufferedImage atlas;
+
+    // where each sprite is in the atlas, and where it is drawn relative to the top left of its tile
+    private final int[] spriteX = new int[SPRITES], spriteW = new int[SPRITES], spriteH = new int[SPRITES],
+            offsetX = new int[SPRITES], offsetY = new int[SPRITES];
+
+    public SpriteAtlas(Image bombImage, Image flagImage, Image radarImage, Image rocketImage, Color[] hintColors,
+            Font hintFont) {
+        this.images = new Image[] { bombImage, flagImage, radarImage, rocketImage };
+        this.hintColors = hintColors;
+        this.hintFont = hintFont;
+    }
+
+    /**
+     * Rebuild the atlas if the tile size changed.
+     * @param tileW The width of a tile, in pixels.
+     * @param tileH The height of a tile, in pixels.
+     */
+    public void update(int tileW, int tileH) {
+        if (tileW == this.tileW && tileH == this.tileH)
+            return;
+        this.tileW = tileW;
+        this.tileH = tileH;
+
+        // images fill their tile, except rockets which hang over the sides
+        for (int i = 0; i < HINTS; i++) {
+            offsetX[i] = i == ROCKET ? -ROCKET_OVERHANG : 0;
+            offsetY[i] = 0;
+            spriteW[i] = i == ROCKET ? tileW + ROCKET_OVERHANG * 2 : tileW;
+            spriteH[i] = tileH;
+        }
+
+        // digits sit where the old drawString put them, and can be bigger than a small tile
+        Graphics2D scratch = createCompatibleImage(1, 1).createGraphics();
+        FontMetrics metrics = scratch.getFontMetrics(hintFont);
+        scratch.dispose();
+        int textX = tileW / 3 + 2;
+        int baseline = (int) ((float) tileH / 1.5f);
+        for (int i = HINTS; i < SPRITES; i++) {
+            String digit = String.valueOf((i - HINTS) % 8 + 1);
+            offsetX[i] = textX;
+            offsetY[i] = baseline - metrics.getAscent();
+            spriteW[i] = metrics.stringWidth(digit) + 1;
+            spriteH[i] = metrics.getAscent() + metrics.getDescent();
+        }
+
+        // lay every sprite out in one row
+        int width = 0, height = 1;
+        for (int i = 0; i < SPRITES; i++) {
+            spriteX[i] = width;
+            width += Math.max(spriteW[i], 1) + 1;
+            height = Math.max(height, spriteH[i]);
+        }
+
+        atlas = createCompatibleImage(width, height);
+        Graphics2D g2 = atlas.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        for (int i = 0; i < HINTS; i++) {
+            g2.drawImage(images[i], spriteX[i], 0, spriteW[i], spriteH[i], null);
+        }
+        g2.setFont(hintFont);
+        for (int i = HINTS; i < SPRITES; i++) {
+            int hint = (i - HINTS) % 8 + 1;
+            g2.setColor(i < HINTS + 8 ? hintColors[hint - 1] : Color.WHITE);
+            g2.drawString(String.valueOf(hint), spriteX[i], metrics.getAscent());
+        }
+        g2.dispose();
+    }
+
+    /**
+     * Draw a tile image.
+     * @param g2 The graphics to draw with.
+     * @param sprite {@link #BOMB}, {@link #FLAG}, {@link #RADAR} or {@link #ROCKET}.
+     * @param x The left of the tile.
+     * @param y The top of the tile.
+     */
+    public void drawTile(Graphics2D g2, int sprite, int x, int y) {
+        draw(g2, sprite, x, y);
+    }
+
+    /**
+     * Draw a bomb hint digit.
+     * @param g2 The graphics to draw with.
+     * @param hint The hint, 1 - 8.
+     * @param white Whether to draw it in white, for tiles with a dark image under the digit.
+     * @param x The left of the tile.
+     * @param y The top of the tile.
+     */
+    public void drawHint(Graphics2D g2, int hint, boolean white, int x, int y) {
+        draw(g2, HINTS + (white ? 8 : 0) + hint - 1, x, y);
+    }
+
+    private void draw(Graphics2D g2, int sprite, int x, int y) {
+        int dx = x + offsetX[sprite];
+        int dy = y + offsetY[sprite];
+        int sx = spriteX[sprite];
+        g2.drawImage(atlas, dx, dy, dx + spriteW[sprite], dy + spriteH[sprite],
+                sx, 0, sx + spriteW[sprite], spriteH[sprite], null);
+    }
+
+    /**
+     * Make a translucent image in the screen's own format, so drawing it needs no conversion.
+     * @param w The width of the image.
+     * @param h The height of the image.
+     * @return The new, fully transparent image.
+     */
+    public static BufferedImage createCompatibleImage(int w, int h) {
+        if (GraphicsEnvironment.isHeadless())
+            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration();
+        return config.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+    }
+}
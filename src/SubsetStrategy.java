@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rules over pairs of overlapping constraints, like the classic 1-2 pattern.
+ * For two constraints A and B, the number of bombs they share is bounded by both of them. If B needs every tile only
+ * it has to be a bomb, even with the most shared bombs possible, those tiles are bombs. If B is already full with the
+ * fewest shared bombs possible, the tiles only it has are safe. The same goes the other way around.
+ */
+public class SubsetStrategy implements SolverStrategy {
+
+    // scratch space, kept between solves. head is -1 for every tile between solves
+    private int[] inA = new int[0], inB = new int[0], head = new int[0], compared = new int[0];
+    private int[] next = new int[0], owners = new int[0];
+    private int stamp = 0;
+
+    @Override
+    public String getName() {
+        return "subset";
+    }
+
+    @Override
+    public void apply(Solver solver) {
+        List<Solver.Constraint> constraints = solver.getConstraints();
+        int size = solver.getWidth() * solver.getHeight();
+        int count = constraints.size();
+
+        if (inA.length < size || stamp > Integer.MAX_VALUE / 2) {
+            inA = new int[size];
+            inB = new int[size];
+            stamp = 0;
+        }
+        if (head.length < size) {
+            head = new int[size];
+            Arrays.fill(head, -1);
+        }
+
+        // index the constraints by tile, as linked lists, so only overlapping pairs get compared
+        int entries = 0;
+        for (Solver.Constraint constraint : constraints)
+            entries += constraint.cells.length;
+        if (next.length < entries) {
+            next = new int[entries];
+            owners = new int[entries];
+        }
+        int entry = 0;
+        for (int c = 0; c < count; c++) {
+            for (int cell : constraints.get(c).cells) {
+                owners[entry] = c;
+                next[entry] = head[cell];
+                head[cell] = entry++;
+            }
+        }
+
+        if (compared.length < count)
+            compared = new int[count];
+        Arrays.fill(compared, 0, count, -1);
+
+        for (int a = 0; a < count; a++) {
+            Solver.Constraint first = constraints.get(a);
+            int stampA = ++stamp;
+            for (int cell : first.cells)
+                inA[cell] = stampA;
+
+            for (int cell : first.cells) {
+                for (int e = head[cell]; e != -1; e = next[e]) {
+                    int b = owners[e];
+                    // look at each pair once, from its lower constraint
+                    if (b <= a || compared[b] == a)
+                        continue;
+                    compared[b] = a;
+                    compare(solver, first, constraints.get(b), stampA);
+                }
+            }
+        }
+
+        // only the tiles of the constraints were linked, so only they need clearing for the next solve
+        for (Solver.Constraint constraint : constraints)
+            for (int cell : constraint.cells)
+                head[cell] = -1;
+    }
+
+    private void compare(Solver solver, Solver.Constraint a, Solver.Constraint b, int stampA) {
+        int stampB = ++stamp;
+        int shared = 0;
+        for (int cell : b.cells) {
+            inB[cell] = stampB;
+            if (inA[cell] == stampA)
+                shared++;
+        }
+        int onlyA = a.cells.length - shared;
+        int onlyB = b.cells.length - shared;
+
+        int minShared = Math.max(0, Math.max(a.mines - onlyA, b.mines - onlyB));
+        int maxShared = Math.min(shared, Math.min(a.mines, b.mines));
+
+        markOnly(solver, b, inA, stampA, b.mines - maxShared == onlyB, b.mines == minShared);
+        markOnly(solver, a, inB, stampB, a.mines - maxShared == onlyA, a.mines == minShared);
+    }
+
+    // mark the tiles of one constraint that the other one does not have
+    private void markOnly(Solver solver, Solver.Constraint side, int[] other, int otherStamp, boolean mines,
+            boolean safe) {
+        if (!mines && !safe)
+            return;
+        for (int cell : side.cells) {
+            if (other[cell] == otherStamp)
+                continue;
+            if (mines)
+                solver.markMine(cell);
+            else
+                solver.markSafe(cell);
+        }
+    }
+}